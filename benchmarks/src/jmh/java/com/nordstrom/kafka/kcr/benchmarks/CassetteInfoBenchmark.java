@@ -0,0 +1,64 @@
+package com.nordstrom.kafka.kcr.benchmarks;
+
+import com.nordstrom.kafka.kcr.cassette.CassetteFormat;
+import com.nordstrom.kafka.kcr.cassette.CassetteInfo;
+import com.nordstrom.kafka.kcr.cassette.CassetteManifest;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Summarizing a synthetic cassette, either from its manifest statistics or, with the manifest
+ * removed, by scanning every partition file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CassetteInfoBenchmark {
+  @Param({"JSON", "BINARY"})
+  private CassetteFormat format;
+
+  @Param({"true", "false"})
+  private boolean manifest;
+
+  @Param({"16"})
+  private int partitions;
+
+  @Param({"20000"})
+  private int records;
+
+  private Path directory;
+  private String cassette;
+
+  @Setup
+  public void setup() {
+    directory = Synthetic.tempDirectory();
+    File cassetteDir = Synthetic.cassette(directory, format, partitions, records, 200);
+    if (!manifest) {
+      File[] manifests = cassetteDir.listFiles((dir, n) -> n.endsWith(CassetteManifest.SUFFIX));
+      for (File file : manifests) {
+        file.delete();
+      }
+    }
+    cassette = cassetteDir.getPath();
+  }
+
+  @TearDown
+  public void teardown() {
+    Synthetic.delete(directory);
+  }
+
+  @Benchmark
+  public CassetteInfo info() {
+    return new CassetteInfo(cassette);
+  }
+}
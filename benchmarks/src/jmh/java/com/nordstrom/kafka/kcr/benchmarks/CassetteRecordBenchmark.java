@@ -0,0 +1,70 @@
+package com.nordstrom.kafka.kcr.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nordstrom.kafka.kcr.cassette.BinaryRecordCodec;
+import com.nordstrom.kafka.kcr.cassette.CassetteFormat;
+import com.nordstrom.kafka.kcr.cassette.CassetteRecord;
+import com.nordstrom.kafka.kcr.cassette.CassetteRecordWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Encoding and decoding of a single record in each cassette format. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CassetteRecordBenchmark {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Param({"100", "1000", "10000"})
+  private int valueSize;
+
+  private CassetteRecord record;
+  private byte[] json;
+  private byte[] binary;
+  private CassetteRecordWriter jsonWriter;
+  private final CassetteRecord decoded = new CassetteRecord();
+
+  @Setup
+  public void setup() {
+    record = Synthetic.record(new Random(42), 0, 0L, valueSize);
+    json = CassetteFormat.JSON.encode(record);
+    binary = CassetteFormat.BINARY.encode(record);
+    jsonWriter = CassetteFormat.JSON.openWriter(new DiscardSink());
+  }
+
+  @Benchmark
+  public byte[] jsonEncode() {
+    return CassetteFormat.JSON.encode(record);
+  }
+
+  @Benchmark
+  public void jsonWrite() {
+    jsonWriter.write(record);
+  }
+
+  @Benchmark
+  public CassetteRecord jsonDecode() throws IOException {
+    return MAPPER.readValue(json, CassetteRecord.class);
+  }
+
+  @Benchmark
+  public byte[] binaryEncode() {
+    return CassetteFormat.BINARY.encode(record);
+  }
+
+  @Benchmark
+  public CassetteRecord binaryDecode() {
+    ByteBuffer buffer = ByteBuffer.wrap(binary, Integer.BYTES, binary.length - Integer.BYTES);
+    return BinaryRecordCodec.decode(buffer, decoded);
+  }
+}
@@ -0,0 +1,48 @@
+package com.nordstrom.kafka.kcr.benchmarks;
+
+import com.nordstrom.kafka.kcr.io.Sink;
+
+/** Sink that only counts the bytes written to it, so encoders can be measured without I/O. */
+class DiscardSink implements Sink {
+  private long position;
+
+  @Override
+  public String getPath() {
+    return "";
+  }
+
+  @Override
+  public void setPath(String path) {
+    // Not implemented
+  }
+
+  @Override
+  public void writeText(String text) {
+    position += text.length();
+  }
+
+  @Override
+  public void writeBytes(byte[] bytes) {
+    position += bytes.length;
+  }
+
+  @Override
+  public void writeBytes(byte[] bytes, int offset, int length) {
+    position += length;
+  }
+
+  @Override
+  public long position() {
+    return position;
+  }
+
+  @Override
+  public void flush() {
+    // Nothing buffered
+  }
+
+  @Override
+  public void close() {
+    // Nothing to release
+  }
+}
@@ -0,0 +1,67 @@
+package com.nordstrom.kafka.kcr.benchmarks;
+
+import com.nordstrom.kafka.kcr.io.FileSink;
+import com.nordstrom.kafka.kcr.io.FlushPolicy;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** Append throughput of {@link FileSink} for different record and buffer sizes. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FileSinkBenchmark {
+  @Param({"100", "1000", "10000"})
+  private int recordSize;
+
+  /** 1 effectively disables buffering: every record goes straight to the channel. */
+  @Param({"1", "65536", "1048576"})
+  private int flushBytes;
+
+  private byte[] data;
+  private Path directory;
+  private FileSink sink;
+  private int iteration;
+
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    data = new byte[recordSize];
+    new Random(42).nextBytes(data);
+    directory = Synthetic.tempDirectory();
+  }
+
+  @Setup(Level.Iteration)
+  public void openSink() {
+    // A fresh file per iteration keeps the file from growing across the whole trial
+    FlushPolicy policy = new FlushPolicy(flushBytes, Duration.ofSeconds(1), false);
+    sink = new FileSink(directory.toString(), "partition-" + iteration++, policy);
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeSink() {
+    sink.close();
+    Synthetic.delete(directory);
+    directory.toFile().mkdirs();
+  }
+
+  @TearDown(Level.Trial)
+  public void teardownTrial() {
+    Synthetic.delete(directory);
+  }
+
+  @Benchmark
+  public void append() {
+    sink.writeBytes(data);
+  }
+}
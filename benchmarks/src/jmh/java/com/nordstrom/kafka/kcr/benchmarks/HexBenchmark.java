@@ -0,0 +1,44 @@
+package com.nordstrom.kafka.kcr.benchmarks;
+
+import com.nordstrom.kafka.kcr.cassette.CassetteRecord;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Hex encoding and decoding of record values, as done for v2 JSON cassettes. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HexBenchmark {
+  @Param({"100", "1000", "10000"})
+  private int valueSize;
+
+  private final CassetteRecord record = new CassetteRecord();
+  private String hex;
+
+  @Setup
+  public void setup() {
+    byte[] value = new byte[valueSize];
+    new Random(42).nextBytes(value);
+    record.setValueBytes(value);
+    hex = record.getValue();
+  }
+
+  @Benchmark
+  public String encode() {
+    return record.getValue();
+  }
+
+  @Benchmark
+  public byte[] decode() {
+    record.setValue(hex);
+    return record.getValueBytes();
+  }
+}
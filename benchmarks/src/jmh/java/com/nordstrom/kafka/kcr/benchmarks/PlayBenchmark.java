@@ -0,0 +1,81 @@
+package com.nordstrom.kafka.kcr.benchmarks;
+
+import com.nordstrom.kafka.kcr.cassette.CassetteFormat;
+import com.nordstrom.kafka.kcr.cassette.CassetteRecord;
+import com.nordstrom.kafka.kcr.cassette.CassetteRecordReader;
+import com.nordstrom.kafka.kcr.kafka.InFlightWindow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The playback path without pacing: read a partition file, build a {@link ProducerRecord} for
+ * every record and send it through an {@link InFlightWindow} to a mock producer. Scores are records
+ * per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(PlayBenchmark.RECORDS)
+public class PlayBenchmark {
+  static final int RECORDS = 50_000;
+
+  @Param({"JSON", "BINARY"})
+  private CassetteFormat format;
+
+  @Param({"200", "2000"})
+  private int valueSize;
+
+  private Path directory;
+  private File partitionFile;
+  private MockProducer<byte[], byte[]> producer;
+  private InFlightWindow window;
+
+  @Setup
+  public void setup() {
+    directory = Synthetic.tempDirectory();
+    File cassetteDir = Synthetic.cassette(directory, format, 1, RECORDS, valueSize);
+    partitionFile = new File(cassetteDir, "bench-0");
+    producer = new MockProducer<>(true, new ByteArraySerializer(), new ByteArraySerializer());
+    window = new InFlightWindow(producer, 1000, "0", new SimpleMeterRegistry());
+  }
+
+  @TearDown
+  public void teardown() {
+    producer.close();
+    Synthetic.delete(directory);
+  }
+
+  @Benchmark
+  public void play() throws InterruptedException {
+    try (CassetteRecordReader reader = CassetteFormat.open(partitionFile)) {
+      CassetteRecord record;
+      while ((record = reader.next()) != null) {
+        window.send(
+            new ProducerRecord<>(
+                "bench",
+                record.getPartition(),
+                record.getKeyBytes(),
+                record.getValueBytes(),
+                record.getRawHeaders()));
+      }
+      window.drain();
+    }
+    // The mock producer keeps every record it is sent
+    producer.clear();
+  }
+}
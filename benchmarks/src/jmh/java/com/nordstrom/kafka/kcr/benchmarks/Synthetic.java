@@ -0,0 +1,82 @@
+package com.nordstrom.kafka.kcr.benchmarks;
+
+import com.nordstrom.kafka.kcr.cassette.Cassette;
+import com.nordstrom.kafka.kcr.cassette.CassetteFormat;
+import com.nordstrom.kafka.kcr.cassette.CassetteRecord;
+import com.nordstrom.kafka.kcr.cassette.PartitionWriter;
+import com.nordstrom.kafka.kcr.io.FileSinkFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+/** Synthetic records and cassettes shared by the benchmarks. */
+final class Synthetic {
+  private Synthetic() {
+    // Utility class
+  }
+
+  /** A record with a short text key, a trace header and {@code valueSize} random value bytes. */
+  static CassetteRecord record(Random random, int partition, long offset, int valueSize) {
+    byte[] value = new byte[valueSize];
+    random.nextBytes(value);
+    List<Header> headers = new ArrayList<>();
+    byte[] traceId = Long.toHexString(random.nextLong()).getBytes(StandardCharsets.UTF_8);
+    headers.add(new RecordHeader("trace-id", traceId));
+    return new CassetteRecord(
+        headers,
+        1_700_000_000_000L + offset,
+        partition,
+        offset,
+        ("key-" + offset).getBytes(StandardCharsets.UTF_8),
+        value);
+  }
+
+  /**
+   * Record a cassette of {@code partitions} files of {@code records} records each under {@code
+   * dataDirectory}.
+   *
+   * @return the cassette directory
+   */
+  static File cassette(
+      Path dataDirectory, CassetteFormat format, int partitions, int records, int valueSize) {
+    Random random = new Random(42);
+    Cassette cassette =
+        new Cassette(
+            dataDirectory.toString(), "bench", partitions, null, new FileSinkFactory(), format);
+    cassette.create("bench");
+    for (PartitionWriter writer : cassette.getWriters()) {
+      int partition = writer.getStats().getPartition();
+      for (int offset = 0; offset < records; offset++) {
+        writer.write(record(random, partition, offset, valueSize));
+      }
+    }
+    cassette.close();
+    return new File(cassette.getCassetteDir());
+  }
+
+  static Path tempDirectory() {
+    try {
+      return Files.createTempDirectory("kcr-bench");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static void delete(Path directory) {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
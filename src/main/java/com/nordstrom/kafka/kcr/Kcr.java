@@ -1,6 +1,8 @@
 package com.nordstrom.kafka.kcr;
 
 import com.nordstrom.kafka.kcr.cassette.CassetteVersion;
+import com.nordstrom.kafka.kcr.commands.Convert;
+import com.nordstrom.kafka.kcr.commands.Merge;
 import com.nordstrom.kafka.kcr.commands.Play;
 import com.nordstrom.kafka.kcr.commands.Record;
 import com.nordstrom.kafka.kcr.facilities.AlphaNumKeyGenerator;
@@ -14,7 +16,7 @@ import picocli.CommandLine.Option;
 @Command(
     name = "kcr",
     description = "Apache Kafka topic record/playback tool",
-    subcommands = {Play.class, Record.class},
+    subcommands = {Play.class, Record.class, Convert.class, Merge.class},
     mixinStandardHelpOptions = true,
     version = "v" + KcrVersion.VERSION + "/" + CassetteVersion.VERSION)
 public class Kcr implements Runnable {
@@ -0,0 +1,104 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+/**
+ * Encodes records in the v3 binary cassette layout. Each partition file starts with {@link #MAGIC}
+ * followed by length-prefixed records (all integers big-endian):
+ *
+ * <pre>
+ * int    record length (bytes that follow)
+ * long   timestamp
+ * int    partition
+ * long   offset
+ * int    key length (-1 = null), key bytes
+ * int    value length (-1 = null), value bytes
+ * int    header count, then per header:
+ *          int key length, UTF-8 key bytes
+ *          int value length (-1 = null), value bytes
+ * </pre>
+ */
+public final class BinaryRecordCodec {
+  public static final byte[] MAGIC = {'K', 'C', 'R', 3};
+
+  /** Size of the fixed part of a record following the length prefix. */
+  static final int FIXED_SIZE = Long.BYTES + Integer.BYTES + Long.BYTES;
+
+  private BinaryRecordCodec() {
+    // Utility class
+  }
+
+  public static byte[] encode(CassetteRecord record) {
+    List<Header> headers = record.getRawHeaders();
+    byte[][] headerKeys = new byte[headers.size()][];
+    int size = FIXED_SIZE + sizeOf(record.getKeyBytes()) + sizeOf(record.getValueBytes());
+    size += Integer.BYTES;
+    for (int i = 0; i < headers.size(); i++) {
+      headerKeys[i] = headers.get(i).key().getBytes(StandardCharsets.UTF_8);
+      size += sizeOf(headerKeys[i]) + sizeOf(headers.get(i).value());
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + size);
+    buffer.putInt(size);
+    buffer.putLong(record.getTimestamp());
+    buffer.putInt(record.getPartition());
+    buffer.putLong(record.getOffset());
+    putBytes(buffer, record.getKeyBytes());
+    putBytes(buffer, record.getValueBytes());
+    buffer.putInt(headers.size());
+    for (int i = 0; i < headers.size(); i++) {
+      putBytes(buffer, headerKeys[i]);
+      putBytes(buffer, headers.get(i).value());
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Decode the record body (everything after the length prefix) from the buffer's position into
+   * {@code record}, advancing the buffer past it.
+   */
+  public static CassetteRecord decode(ByteBuffer buffer, CassetteRecord record) {
+    record.setTimestamp(buffer.getLong());
+    record.setPartition(buffer.getInt());
+    record.setOffset(buffer.getLong());
+    record.setKeyBytes(getBytes(buffer));
+    record.setValueBytes(getBytes(buffer));
+
+    int count = buffer.getInt();
+    List<Header> headers = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String key = new String(getBytes(buffer), StandardCharsets.UTF_8);
+      headers.add(new RecordHeader(key, getBytes(buffer)));
+    }
+    record.setRawHeaders(headers);
+    return record;
+  }
+
+  private static int sizeOf(byte[] bytes) {
+    return Integer.BYTES + (bytes != null ? bytes.length : 0);
+  }
+
+  private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+    if (bytes == null) {
+      buffer.putInt(-1);
+    } else {
+      buffer.putInt(bytes.length);
+      buffer.put(bytes);
+    }
+  }
+
+  private static byte[] getBytes(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,28 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+/**
+ * Compresses the blocks of records in compressed partition files. Each file names its codec by
+ * {@link #id()} in its header, so it is read back with the codec that wrote it whatever the reader
+ * was configured with; see {@link BlockCodecs} for the available codecs.
+ */
+public interface BlockCodec {
+  /**
+   * @return the codec's id in file headers, unique among codecs
+   */
+  byte id();
+
+  /**
+   * @return the codec's name on the command line
+   */
+  String name();
+
+  /** Compress the first {@code length} bytes of {@code block}. */
+  byte[] compress(byte[] block, int length);
+
+  /**
+   * Decompress a block compressed by {@link #compress(byte[], int)}.
+   *
+   * @param length the length of the block before compression
+   */
+  byte[] decompress(byte[] compressed, int length);
+}
@@ -0,0 +1,52 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** The block codecs compressed partition files can be written and read with. */
+public final class BlockCodecs {
+  public static final BlockCodec DEFLATE = new DeflateBlockCodec();
+
+  private static final Map<Byte, BlockCodec> BY_ID = new ConcurrentHashMap<>();
+  private static final Map<String, BlockCodec> BY_NAME = new ConcurrentHashMap<>();
+
+  static {
+    register(DEFLATE);
+  }
+
+  private BlockCodecs() {
+    // Utility class
+  }
+
+  /** Make another codec available for writing, and for reading the files it writes. */
+  public static void register(BlockCodec codec) {
+    BlockCodec existing = BY_ID.putIfAbsent(codec.id(), codec);
+    if (existing != null && existing != codec) {
+      throw new IllegalArgumentException(
+          "Codec id " + codec.id() + " is already used by " + existing.name());
+    }
+    BY_NAME.put(codec.name(), codec);
+  }
+
+  public static BlockCodec forId(byte id) {
+    BlockCodec codec = BY_ID.get(id);
+    if (codec == null) {
+      throw new IllegalArgumentException("Unknown block codec id " + id);
+    }
+    return codec;
+  }
+
+  public static BlockCodec named(String name) {
+    BlockCodec codec = BY_NAME.get(name);
+    if (codec == null) {
+      throw new IllegalArgumentException(
+          "Unknown block codec " + name + ", expected one of " + names());
+    }
+    return codec;
+  }
+
+  public static Set<String> names() {
+    return Set.copyOf(BY_NAME.keySet());
+  }
+}
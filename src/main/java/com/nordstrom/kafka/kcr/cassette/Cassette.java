@@ -6,27 +6,43 @@ import com.nordstrom.kafka.kcr.io.Source;
 import com.nordstrom.kafka.kcr.io.SourceFactory;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
 import java.util.TimeZone;
+import java.util.TreeMap;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A recording of one or more topics: a partition file, with its index, per recorded partition and a
+ * manifest describing them all. A partition file may be rolled over into numbered segments, {@code
+ * <topic>-<partition>}, {@code <topic>-<partition>.1}, ..., each with its own index.
+ */
 public class Cassette {
   private static final Logger log = LoggerFactory.getLogger(Cassette.class);
 
   private final String dataDirectory;
-  private final String topic;
-  private final int partitions;
+  private final Map<String, Integer> topics;
   private final SourceFactory sourceFactory;
   private final SinkFactory sinkFactory;
+  private final CassetteFormat format;
+  private final SegmentPolicy segmentPolicy;
 
   private String cassetteDir;
   private String cassetteName;
   private CassetteManifest manifest;
-  private final List<Sink> sinks = new ArrayList<>();
+  private final List<PartitionWriter> writers = new ArrayList<>();
+  private final Map<String, PartitionWriter> writersByFile = new HashMap<>();
   private final List<Source> sources = new ArrayList<>();
+  private final List<List<TopicPartition>> sourcePartitions = new ArrayList<>();
 
   public Cassette(
       String dataDirectory,
@@ -34,51 +50,158 @@ public class Cassette {
       int partitions,
       SourceFactory sourceFactory,
       SinkFactory sinkFactory) {
-    if (topic == null || topic.isBlank()) {
-      throw new IllegalArgumentException("Topic cannot be null or blank");
+    this(dataDirectory, topic, partitions, sourceFactory, sinkFactory, CassetteFormat.BINARY);
+  }
+
+  public Cassette(
+      String dataDirectory,
+      String topic,
+      int partitions,
+      SourceFactory sourceFactory,
+      SinkFactory sinkFactory,
+      CassetteFormat format) {
+    this(dataDirectory, singleTopic(topic, partitions), sourceFactory, sinkFactory, format);
+  }
+
+  public Cassette(
+      String dataDirectory,
+      Map<String, Integer> topics,
+      SourceFactory sourceFactory,
+      SinkFactory sinkFactory,
+      CassetteFormat format) {
+    this(dataDirectory, topics, sourceFactory, sinkFactory, format, SegmentPolicy.NONE);
+  }
+
+  /**
+   * @param topics number of partitions of every topic to record, in the order they are listed in
+   *     the manifest
+   * @param segmentPolicy when to roll partition files over to a new segment
+   */
+  public Cassette(
+      String dataDirectory,
+      Map<String, Integer> topics,
+      SourceFactory sourceFactory,
+      SinkFactory sinkFactory,
+      CassetteFormat format,
+      SegmentPolicy segmentPolicy) {
+    if (topics == null || topics.isEmpty()) {
+      throw new IllegalArgumentException("Must record at least one topic");
     }
-    if (partitions <= 0) {
-      throw new IllegalArgumentException("Number of partitions must be > 0");
+    for (Map.Entry<String, Integer> topic : topics.entrySet()) {
+      singleTopic(topic.getKey(), topic.getValue());
     }
     if (sinkFactory == null) {
       throw new IllegalArgumentException("Must have a concrete SinkFactory");
     }
+    if (format == null) {
+      throw new IllegalArgumentException("Must have a cassette format");
+    }
+    if (segmentPolicy == null) {
+      throw new IllegalArgumentException("Must have a segment policy");
+    }
 
     this.dataDirectory = dataDirectory;
-    this.topic = topic;
-    this.partitions = partitions;
+    this.topics = new LinkedHashMap<>(topics);
     this.sourceFactory = sourceFactory;
     this.sinkFactory = sinkFactory;
+    this.format = format;
+    this.segmentPolicy = segmentPolicy;
   }
 
+  private static Map<String, Integer> singleTopic(String topic, int partitions) {
+    if (topic == null || topic.isBlank()) {
+      throw new IllegalArgumentException("Topic cannot be null or blank");
+    }
+    if (partitions <= 0) {
+      throw new IllegalArgumentException("Number of partitions must be > 0");
+    }
+    return Map.of(topic, partitions);
+  }
+
+  /** Create the cassette with one source per partition. */
   public void create(String id) {
+    create(id, getPartitions());
+  }
+
+  /**
+   * Create the cassette with at most {@code consumers} sources, each reading a share of the
+   * partitions of every topic, so that consumer count and memory scale with {@code consumers}
+   * rather than with the number of topics and partitions.
+   */
+  public void create(String id, int consumers) {
+    if (consumers <= 0) {
+      throw new IllegalArgumentException("Number of consumers must be > 0");
+    }
+
     SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.getDefault());
     dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
     Date nowish = new Date();
-    cassetteName = "kcr-" + topic + "-" + dateFormat.format(nowish);
+    cassetteName = "kcr-" + getLabel() + "-" + dateFormat.format(nowish);
     cassetteDir = dataDirectory + "/" + cassetteName;
 
     // Create manifest
     manifest =
         new CassetteManifest(
-            sinkFactory, cassetteDir, id, cassetteName, partitions, topic, new Date().toInstant());
+            cassetteDir,
+            id,
+            cassetteName,
+            getLabel(),
+            topics,
+            format,
+            new Date().toInstant());
 
-    // Create a sink for each partition
-    for (int partition = 0; partition < partitions; partition++) {
-      String partitionName = topic + "-" + partition;
-      Sink sink = sinkFactory.create(cassetteDir, partitionName);
-      sinks.add(sink);
+    // Create a writer, with its first segment, for each partition of each topic
+    List<TopicPartition> all = new ArrayList<>();
+    for (Map.Entry<String, Integer> topic : topics.entrySet()) {
+      for (int partition = 0; partition < topic.getValue(); partition++) {
+        String partitionName = partitionFileName(topic.getKey(), partition);
+        PartitionWriter writer =
+            new PartitionWriter(
+                sinkFactory,
+                cassetteDir,
+                partitionName,
+                new PartitionStats(partitionName, topic.getKey(), partition),
+                format,
+                segmentPolicy);
+        writers.add(writer);
+        writersByFile.put(partitionName, writer);
+        all.add(new TopicPartition(topic.getKey(), partition));
+      }
     }
 
-    // Create a source for each partition
+    // Create the sources, spreading the partitions evenly between them
     if (sourceFactory != null) {
-      for (int partition = 0; partition < partitions; partition++) {
-        Source source = sourceFactory.create(partition);
-        sources.add(source);
+      for (List<TopicPartition> assigned : assignPartitions(all, consumers)) {
+        sources.add(sourceFactory.create(assigned));
+        sourcePartitions.add(assigned);
       }
     }
   }
 
+  /** Push any buffered partition data to storage. */
+  public void flush() {
+    for (PartitionWriter writer : writers) {
+      writer.flush();
+    }
+  }
+
+  /** Flush and close every partition, then complete the manifest with their statistics. */
+  public void close() {
+    List<PartitionStats> stats = new ArrayList<>();
+    for (PartitionWriter writer : writers) {
+      try {
+        writer.close();
+      } catch (RuntimeException e) {
+        log.error("Error closing partition {}", writer.getSink().getPath(), e);
+      }
+      stats.add(writer.getStats());
+    }
+    if (manifest != null) {
+      manifest.close(stats, new Date().toInstant());
+    }
+    log.trace(".close.ok");
+  }
+
   public String getCassetteDir() {
     return cassetteDir;
   }
@@ -87,11 +210,133 @@ public class Cassette {
     return cassetteName;
   }
 
+  public CassetteFormat getFormat() {
+    return format;
+  }
+
   public List<Sink> getSinks() {
-    return sinks;
+    return writers.stream().map(PartitionWriter::getSink).toList();
+  }
+
+  public List<PartitionWriter> getWriters() {
+    return writers;
   }
 
   public List<Source> getSources() {
     return sources;
   }
+
+  /**
+   * @return the partitions read by each source, in the same order as {@link #getSources()}
+   */
+  public List<List<TopicPartition>> getSourcePartitions() {
+    return sourcePartitions;
+  }
+
+  /**
+   * @return the writer of {@code partition} of {@code topic}, or {@code null} if it is not recorded
+   */
+  public PartitionWriter getWriter(String topic, int partition) {
+    return writersByFile.get(partitionFileName(topic, partition));
+  }
+
+  /**
+   * @return number of partitions of every recorded topic
+   */
+  public Map<String, Integer> getTopics() {
+    return topics;
+  }
+
+  /**
+   * @return total number of partitions over all topics
+   */
+  public int getPartitions() {
+    return topics.values().stream().mapToInt(Integer::intValue).sum();
+  }
+
+  /**
+   * @return name of the cassette's topics, see {@link #label(Collection)}
+   */
+  public String getLabel() {
+    return label(topics.keySet());
+  }
+
+  /**
+   * @return name of a cassette of {@code topics}: the topic itself, or the first topic and how many
+   *     more there are
+   */
+  public static String label(Collection<String> topics) {
+    String first = topics.iterator().next();
+    return topics.size() == 1 ? first : first + "+" + (topics.size() - 1);
+  }
+
+  /** Deal {@code items} round-robin into at most {@code groups} non-empty groups. */
+  static <T> List<List<T>> assignPartitions(List<T> items, int groups) {
+    List<List<T>> assignment = new ArrayList<>();
+    for (int group = 0; group < Math.min(items.size(), groups); group++) {
+      assignment.add(new ArrayList<>());
+    }
+    for (int i = 0; i < items.size(); i++) {
+      assignment.get(i % assignment.size()).add(items.get(i));
+    }
+    return assignment;
+  }
+
+  /** Name of the file holding {@code partition} of {@code topic}. */
+  public static String partitionFileName(String topic, int partition) {
+    return topic + "-" + partition;
+  }
+
+  /** Name of segment {@code segment} of a partition file; the first keeps the partition's name. */
+  public static String segmentFileName(String partitionFile, int segment) {
+    return segment == 0 ? partitionFile : partitionFile + "." + segment;
+  }
+
+  /** Topic recorded in a partition or segment file, from its name. */
+  public static String topicOf(String fileName) {
+    return fileName.substring(0, fileName.lastIndexOf('-'));
+  }
+
+  /** Partition recorded in a partition or segment file, from its name. */
+  public static int partitionOf(String fileName) {
+    String suffix = fileName.substring(fileName.lastIndexOf('-') + 1);
+    int dot = suffix.indexOf('.');
+    return Integer.parseInt(dot < 0 ? suffix : suffix.substring(0, dot));
+  }
+
+  /** Number of the segment held in a partition or segment file, from its name. */
+  public static int segmentOf(String fileName) {
+    String suffix = fileName.substring(fileName.lastIndexOf('-') + 1);
+    int dot = suffix.indexOf('.');
+    return dot < 0 ? 0 : Integer.parseInt(suffix.substring(dot + 1));
+  }
+
+  /** Partition file a segment file belongs to, from its name. */
+  public static String partitionFileOf(String fileName) {
+    return partitionFileName(topicOf(fileName), partitionOf(fileName));
+  }
+
+  /**
+   * Group the partition and segment files among {@code names}, the files of a cassette directory,
+   * by partition file.
+   *
+   * @return the segment files of every partition file in segment order, by partition file name
+   */
+  public static SortedMap<String, List<String>> segments(String[] names) {
+    SortedMap<String, List<String>> segments = new TreeMap<>();
+    for (String name : names) {
+      if (isPartitionFile(name)) {
+        segments.computeIfAbsent(partitionFileOf(name), k -> new ArrayList<>()).add(name);
+      }
+    }
+    for (List<String> files : segments.values()) {
+      files.sort(Comparator.comparingInt(Cassette::segmentOf));
+    }
+    return segments;
+  }
+
+  /** Whether {@code name}, a file in a cassette directory, holds partition records. */
+  public static boolean isPartitionFile(String name) {
+    return !name.contains("manifest") && !CassetteIndex.isIndexFile(name);
+  }
 }
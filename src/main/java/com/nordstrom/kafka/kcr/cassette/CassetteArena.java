@@ -0,0 +1,169 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cassette decoded once into off-heap memory, so that repeated playback runs replay from memory
+ * instead of re-reading and re-parsing partition files, keeping disk and parse jitter out of the
+ * replayed timing.
+ *
+ * <p>Each partition is held as a list of direct buffer chunks of records in the v3 binary layout,
+ * whatever format the files were recorded in. A record never spans chunks. Chunks are sized from
+ * the partition's file sizes, growing if those underestimate, and the last chunk of a partition is
+ * trimmed to the records it holds, so small partitions take little memory. Loading gives up once
+ * the records stored would exceed the memory cap, leaving what it allocated to the garbage
+ * collector.
+ */
+public class CassetteArena {
+  private static final Logger log = LoggerFactory.getLogger(CassetteArena.class);
+  static final int CHUNK_SIZE = 64 * 1024 * 1024;
+  static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+  private final Map<String, List<ByteBuffer>> partitions;
+  private final long bytes;
+  private final long records;
+
+  private CassetteArena(Map<String, List<ByteBuffer>> partitions, long bytes, long records) {
+    this.partitions = partitions;
+    this.bytes = bytes;
+    this.records = records;
+  }
+
+  /**
+   * Decode the records of every partition with timestamps from {@code fromTimestamp} up to the
+   * first one after {@code toTimestamp}.
+   *
+   * @param segments the segment files of every partition, by partition file name
+   * @param maxBytes the most record bytes to hold off-heap
+   * @return the arena, or {@code null} if the records do not fit in {@code maxBytes}
+   */
+  public static CassetteArena load(
+      Map<String, List<File>> segments, long fromTimestamp, long toTimestamp, long maxBytes) {
+    Map<String, List<ByteBuffer>> partitions = new HashMap<>();
+    long stored = 0L;
+    long count = 0L;
+    try {
+      for (Map.Entry<String, List<File>> partition : segments.entrySet()) {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        partitions.put(partition.getKey(), chunks);
+        // The files' size is close to the records' v3 size, except for JSON and compressed files
+        long expected = partition.getValue().stream().mapToLong(File::length).sum();
+        long written = 0L;
+        ByteBuffer chunk = null;
+        try (CassetteRecordReader reader =
+            new SegmentedRecordReader(partition.getValue(), fromTimestamp)) {
+          CassetteRecord record;
+          while ((record = reader.next()) != null) {
+            if (record.getTimestamp() < fromTimestamp) {
+              continue;
+            }
+            if (record.getTimestamp() > toTimestamp) {
+              break;
+            }
+            byte[] encoded = BinaryRecordCodec.encode(record);
+            if (stored + encoded.length > maxBytes) {
+              log.info(".load: cassette needs more than {} bytes", maxBytes);
+              return null;
+            }
+            if (chunk == null || chunk.remaining() < encoded.length) {
+              // Double the last chunk once the files' size is used up
+              long grown = chunk == null ? 0L : 2L * chunk.capacity();
+              long wanted = Math.max(expected - written, grown);
+              long size = Math.min(CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, wanted));
+              size = Math.max(encoded.length, Math.min(size, maxBytes - stored));
+              chunk = ByteBuffer.allocateDirect((int) size);
+              chunks.add(chunk);
+            }
+            chunk.put(encoded);
+            stored += encoded.length;
+            written += encoded.length;
+            count++;
+          }
+        }
+        if (chunk != null && chunk.hasRemaining()) {
+          chunks.set(chunks.size() - 1, trimmed(chunk));
+        }
+      }
+    } catch (OutOfMemoryError e) {
+      // Direct memory is limited separately from the heap, by -XX:MaxDirectMemorySize
+      log.warn(".load: out of direct memory after {} bytes", stored);
+      return null;
+    }
+
+    for (List<ByteBuffer> chunks : partitions.values()) {
+      chunks.forEach(ByteBuffer::flip);
+    }
+    return new CassetteArena(partitions, stored, count);
+  }
+
+  /** A copy of a chunk holding only the records written to it, positioned after them. */
+  private static ByteBuffer trimmed(ByteBuffer chunk) {
+    ByteBuffer copy = ByteBuffer.allocateDirect(chunk.position());
+    chunk.flip();
+    copy.put(chunk);
+    return copy;
+  }
+
+  /**
+   * @return a reader over the records of {@code partitionFile}; any number of readers may be open
+   *     at once
+   */
+  public CassetteRecordReader open(String partitionFile) {
+    List<ByteBuffer> chunks = partitions.get(partitionFile);
+    if (chunks == null) {
+      throw new IllegalArgumentException("Not in the arena: " + partitionFile);
+    }
+    return new ArenaRecordReader(chunks);
+  }
+
+  /**
+   * @return bytes of records held off-heap by the arena
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @return number of records held by the arena
+   */
+  public long getRecords() {
+    return records;
+  }
+
+  /** Decodes records from independent views of a partition's chunks. */
+  private static class ArenaRecordReader implements CassetteRecordReader {
+    private final List<ByteBuffer> chunks;
+    private final CassetteRecord record = new CassetteRecord();
+    private ByteBuffer chunk;
+    private int next;
+
+    private ArenaRecordReader(List<ByteBuffer> chunks) {
+      this.chunks = chunks;
+    }
+
+    @Override
+    public CassetteRecord next() {
+      while (chunk == null || !chunk.hasRemaining()) {
+        if (next >= chunks.size()) {
+          return null;
+        }
+        chunk = chunks.get(next++).duplicate();
+      }
+      // Skip the length prefix
+      chunk.getInt();
+      return BinaryRecordCodec.decode(chunk, record);
+    }
+
+    @Override
+    public void close() {
+      chunk = null;
+    }
+  }
+}
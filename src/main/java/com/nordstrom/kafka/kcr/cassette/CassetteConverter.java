@@ -0,0 +1,199 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import com.nordstrom.kafka.kcr.io.SinkFactory;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams a cassette into a new one, possibly in another format, segmented differently and with
+ * fields of its records dropped. Partitions are converted in parallel, each streamed record by
+ * record, so memory use is bounded by the number of threads rather than by the cassette's size.
+ */
+public class CassetteConverter {
+  private static final Logger log = LoggerFactory.getLogger(CassetteConverter.class);
+
+  private final File source;
+  private final SinkFactory sinkFactory;
+  private final CassetteFormat format;
+  private final SegmentPolicy segmentPolicy;
+  private final UnaryOperator<CassetteRecord> transform;
+  private final int threads;
+  private final AtomicLong records = new AtomicLong();
+
+  /**
+   * @param transform applied to every record before it is written; it may return the record
+   *     itself, which is only valid until the next record is read
+   * @param threads number of partitions converted at once
+   */
+  public CassetteConverter(
+      File source,
+      SinkFactory sinkFactory,
+      CassetteFormat format,
+      SegmentPolicy segmentPolicy,
+      UnaryOperator<CassetteRecord> transform,
+      int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Number of threads must be > 0");
+    }
+    this.source = source;
+    this.sinkFactory = sinkFactory;
+    this.format = format;
+    this.segmentPolicy = segmentPolicy;
+    this.transform = transform;
+    this.threads = threads;
+  }
+
+  /**
+   * Convert the cassette into a new cassette under {@code dataDirectory}.
+   *
+   * @return the new cassette, closed
+   */
+  public Cassette convert(String dataDirectory, String id) {
+    String[] names = source.list();
+    if (names == null) {
+      throw new IllegalArgumentException("Cannot read cassette directory " + source);
+    }
+    SortedMap<String, List<String>> segments = Cassette.segments(names);
+    if (segments.isEmpty()) {
+      throw new IllegalArgumentException("No partition files in " + source);
+    }
+
+    Cassette cassette =
+        new Cassette(
+            dataDirectory,
+            topics(source, segments.keySet()),
+            null,
+            sinkFactory,
+            format,
+            segmentPolicy);
+    cassette.create(id);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> done = new ArrayList<>();
+      for (Map.Entry<String, List<String>> partition : segments.entrySet()) {
+        String file = partition.getKey();
+        PartitionWriter writer =
+            cassette.getWriter(Cassette.topicOf(file), Cassette.partitionOf(file));
+        List<File> files = partition.getValue().stream().map(f -> new File(source, f)).toList();
+        done.add(executor.submit(() -> convert(files, writer)));
+      }
+      for (Future<?> future : done) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException cause
+          ? cause
+          : new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+      cassette.close();
+    }
+    return cassette;
+  }
+
+  private void convert(List<File> files, PartitionWriter writer) {
+    long count = 0L;
+    try (CassetteRecordReader reader = new SegmentedRecordReader(files)) {
+      CassetteRecord record;
+      while ((record = reader.next()) != null) {
+        writer.write(transform.apply(record));
+        count++;
+      }
+    }
+    records.addAndGet(count);
+    log.info(".convert: file={}, records={}", files.get(0).getName(), count);
+  }
+
+  /**
+   * @return records converted so far
+   */
+  public long getRecords() {
+    return records.get();
+  }
+
+  /**
+   * The topics of a cassette with their partition counts, from its manifest and its partition
+   * files.
+   */
+  static Map<String, Integer> topics(File cassetteDir, Collection<String> partitionFiles) {
+    Map<String, Integer> topics = new LinkedHashMap<>();
+    CassetteManifest manifest = CassetteManifest.read(cassetteDir);
+    if (manifest != null && manifest.getTopic() != null) {
+      topics.putAll(manifest.getTopics());
+    }
+    for (String file : partitionFiles) {
+      topics.merge(Cassette.topicOf(file), Cassette.partitionOf(file) + 1, Math::max);
+    }
+    return topics;
+  }
+
+  /**
+   * Parse the fields to drop from every record: {@code key}, {@code value}, {@code headers} or
+   * {@code header:<name>}.
+   *
+   * @return a transform returning a copy of each record without those fields
+   */
+  public static UnaryOperator<CassetteRecord> dropping(List<String> fields) {
+    boolean key = false;
+    boolean value = false;
+    boolean headers = false;
+    List<String> headerNames = new ArrayList<>();
+    for (String field : fields) {
+      String f = field.trim();
+      if (f.equals("key")) {
+        key = true;
+      } else if (f.equals("value")) {
+        value = true;
+      } else if (f.equals("headers")) {
+        headers = true;
+      } else if (f.startsWith("header:") && f.length() > "header:".length()) {
+        headerNames.add(f.substring("header:".length()));
+      } else {
+        throw new IllegalArgumentException(
+            "Cannot drop " + field + ", expected key, value, headers or header:<name>");
+      }
+    }
+    if (!key && !value && !headers && headerNames.isEmpty()) {
+      return UnaryOperator.identity();
+    }
+
+    boolean dropKey = key;
+    boolean dropValue = value;
+    boolean dropHeaders = headers;
+    return record -> {
+      List<Header> kept = new ArrayList<>();
+      if (!dropHeaders) {
+        for (Header header : record.getRawHeaders()) {
+          if (!headerNames.contains(header.key())) {
+            kept.add(header);
+          }
+        }
+      }
+      // A copy, as readers reuse the record and its header list
+      return new CassetteRecord(
+          kept,
+          record.getTimestamp(),
+          record.getPartition(),
+          record.getOffset(),
+          dropKey ? null : record.getKeyBytes(),
+          dropValue ? null : record.getValueBytes());
+    };
+  }
+}
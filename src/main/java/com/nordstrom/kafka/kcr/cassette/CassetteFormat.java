@@ -0,0 +1,208 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nordstrom.kafka.kcr.io.Sink;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/** On-disk encodings of partition files. */
+public enum CassetteFormat {
+  /** v2: one JSON object per line, key as a string and value hex encoded. */
+  JSON(CassetteVersion.V2) {
+    @Override
+    public byte[] encode(CassetteRecord record) {
+      try {
+        byte[] json = MAPPER.writeValueAsBytes(record);
+        byte[] line = Arrays.copyOf(json, json.length + 1);
+        line[json.length] = '\n';
+        return line;
+      } catch (JsonProcessingException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public CassetteRecordWriter openWriter(Sink sink) {
+      return new JsonRecordWriter(sink);
+    }
+
+    @Override
+    public CassetteRecordReader openReader(File file, long position) {
+      return new JsonRecordReader(file, position);
+    }
+
+    @Override
+    public void forEachTimestamp(File file, LongConsumer action) {
+      // Stream the tokens, reading only the top-level timestamp of each record.
+      try (JsonParser parser = MAPPER.getFactory().createParser(file)) {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+          if (token != JsonToken.START_OBJECT) {
+            continue;
+          }
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("timestamp".equals(field)) {
+              action.accept(parser.getLongValue());
+            } else {
+              parser.skipChildren();
+            }
+          }
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  },
+
+  /** v3: length-prefixed binary records holding the raw key, value and header bytes. */
+  BINARY(CassetteVersion.V3) {
+    @Override
+    public byte[] encode(CassetteRecord record) {
+      return BinaryRecordCodec.encode(record);
+    }
+
+    @Override
+    public CassetteRecordReader openReader(File file, long position) {
+      return new MappedRecordReader(file, position);
+    }
+
+    @Override
+    public void writeHeader(Sink sink) {
+      sink.writeBytes(BinaryRecordCodec.MAGIC);
+    }
+
+    @Override
+    public void forEachTimestamp(File file, LongConsumer action) {
+      // Read each record's length and timestamp, skipping the rest of it.
+      try (DataInputStream input =
+          new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+        input.skipNBytes(BinaryRecordCodec.MAGIC.length);
+        while (true) {
+          int length = input.readInt();
+          long timestamp = input.readLong();
+          input.skipNBytes(length - Long.BYTES);
+          action.accept(timestamp);
+        }
+      } catch (EOFException e) {
+        // End of file, or a record truncated by a recorder that died mid-write
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  },
+
+  /** v4: v3 binary records in blocks compressed with a {@link BlockCodec}, deflate by default. */
+  COMPRESSED(CassetteVersion.V4) {
+    @Override
+    public byte[] encode(CassetteRecord record) {
+      return BinaryRecordCodec.encode(record);
+    }
+
+    @Override
+    public CassetteRecordWriter openWriter(Sink sink) {
+      return new CompressedRecordWriter(sink, BlockCodecs.DEFLATE);
+    }
+
+    @Override
+    public CassetteRecordReader openReader(File file, long position) {
+      return new CompressedRecordReader(file, position);
+    }
+
+    @Override
+    public void writeHeader(Sink sink) {
+      CompressedRecordWriter.writeHeader(sink, BlockCodecs.DEFLATE);
+    }
+
+    @Override
+    public void forEachTimestamp(File file, LongConsumer action) {
+      try (CassetteRecordReader reader = openReader(file)) {
+        CassetteRecord record;
+        while ((record = reader.next()) != null) {
+          action.accept(record.getTimestamp());
+        }
+      }
+    }
+  };
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final String version;
+
+  CassetteFormat(String version) {
+    this.version = version;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  /**
+   * Encode a record exactly as it is appended to a partition file, or for compressed files as it
+   * is appended to a block.
+   */
+  public abstract byte[] encode(CassetteRecord record);
+
+  /** Open a writer that appends records to {@code sink} in this format. */
+  public CassetteRecordWriter openWriter(Sink sink) {
+    return record -> sink.writeBytes(encode(record));
+  }
+
+  /**
+   * Open a reader over a partition file starting at the record at byte {@code position}, as found
+   * in the file's {@link CassetteIndex}.
+   */
+  public abstract CassetteRecordReader openReader(File file, long position);
+
+  public CassetteRecordReader openReader(File file) {
+    return openReader(file, 0L);
+  }
+
+  /** Pass the timestamp of every record in a partition file to {@code action}, in file order. */
+  public abstract void forEachTimestamp(File file, LongConsumer action);
+
+  /** Write whatever a new partition file must start with. */
+  public void writeHeader(Sink sink) {
+    // Nothing by default
+  }
+
+  /**
+   * Work out the format of a partition file from its first bytes. v3 and v4 files start with
+   * their magic; anything else is read as v2 JSON lines.
+   */
+  public static CassetteFormat detect(File file) {
+    byte[] head = new byte[BinaryRecordCodec.MAGIC.length];
+    try (InputStream input = new FileInputStream(file)) {
+      int n = input.readNBytes(head, 0, head.length);
+      if (n == head.length && Arrays.equals(head, BinaryRecordCodec.MAGIC)) {
+        return BINARY;
+      }
+      if (n == head.length && Arrays.equals(head, CompressedRecordWriter.MAGIC)) {
+        return COMPRESSED;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return JSON;
+  }
+
+  /** Open a reader over a partition file in whichever format it was written. */
+  public static CassetteRecordReader open(File file) {
+    return open(file, 0L);
+  }
+
+  public static CassetteRecordReader open(File file, long position) {
+    return detect(file).openReader(file, position);
+  }
+}
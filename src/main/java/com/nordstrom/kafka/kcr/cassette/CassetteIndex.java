@@ -0,0 +1,137 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+/**
+ * Sparse index of a partition file, stored next to it as {@code <partition file>.index}. Each entry
+ * is three big-endian longs:
+ *
+ * <pre>
+ * long   highest timestamp of all records before the indexed position
+ * long   offset of the record at the indexed position
+ * long   byte position of that record in the partition file
+ * </pre>
+ *
+ * Storing the timestamp high-water mark rather than the record's own timestamp keeps seeking
+ * correct when timestamps within a partition are not strictly ordered: every record before the
+ * chosen position is known to be earlier than the requested time.
+ */
+public class CassetteIndex {
+  public static final String SUFFIX = ".index";
+  static final int ENTRY_SIZE = 3 * Long.BYTES;
+
+  private final long[] timestamps;
+  private final long[] offsets;
+  private final long[] positions;
+
+  private CassetteIndex(long[] timestamps, long[] offsets, long[] positions) {
+    this.timestamps = timestamps;
+    this.offsets = offsets;
+    this.positions = positions;
+  }
+
+  public static String fileName(String partitionFile) {
+    return partitionFile + SUFFIX;
+  }
+
+  public static boolean isIndexFile(String name) {
+    return name.endsWith(SUFFIX);
+  }
+
+  /**
+   * @return the index of {@code partitionFile}, or {@code null} if it was recorded without one
+   */
+  public static CassetteIndex load(File partitionFile) {
+    File file = new File(partitionFile.getParentFile(), fileName(partitionFile.getName()));
+    if (!file.isFile()) {
+      return null;
+    }
+
+    ByteBuffer buffer;
+    try {
+      buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    // Ignore a partially written trailing entry
+    int count = buffer.remaining() / ENTRY_SIZE;
+    long[] timestamps = new long[count];
+    long[] offsets = new long[count];
+    long[] positions = new long[count];
+    for (int i = 0; i < count; i++) {
+      timestamps[i] = buffer.getLong();
+      offsets[i] = buffer.getLong();
+      positions[i] = buffer.getLong();
+    }
+    return new CassetteIndex(timestamps, offsets, positions);
+  }
+
+  /**
+   * @return the furthest byte position such that every record before it has a timestamp earlier
+   *     than {@code timestamp}, or 0 if there is none
+   */
+  public long positionForTimestamp(long timestamp) {
+    // High-water marks never decrease, so the last entry still below the target is the answer.
+    int lo = 0;
+    int hi = timestamps.length - 1;
+    int found = -1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (timestamps[mid] < timestamp) {
+        found = mid;
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return found >= 0 ? positions[found] : 0L;
+  }
+
+  /**
+   * @return the byte position of the last indexed record with an offset at or before {@code
+   *     offset}, or 0 if there is none
+   */
+  public long positionForOffset(long offset) {
+    int lo = 0;
+    int hi = offsets.length - 1;
+    int found = -1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (offsets[mid] <= offset) {
+        found = mid;
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return found >= 0 ? positions[found] : 0L;
+  }
+
+  public int size() {
+    return positions.length;
+  }
+
+  /**
+   * @return the timestamp high-water mark of entry {@code i}
+   */
+  long timestampAt(int i) {
+    return timestamps[i];
+  }
+
+  /**
+   * @return the offset of the record indexed by entry {@code i}
+   */
+  long offsetAt(int i) {
+    return offsets[i];
+  }
+
+  /**
+   * @return the byte position of entry {@code i}
+   */
+  long positionAt(int i) {
+    return positions[i];
+  }
+}
@@ -0,0 +1,59 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import com.nordstrom.kafka.kcr.io.Sink;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes the sparse index of a partition file. An entry is written for the first record and then
+ * for the first record after every {@code intervalBytes} of partition data; see {@link
+ * CassetteIndex} for the entry layout.
+ */
+public class CassetteIndexWriter implements AutoCloseable {
+  public static final long DEFAULT_INTERVAL_BYTES = 1024 * 1024;
+
+  private final Sink sink;
+  private final long intervalBytes;
+  private final ByteBuffer entry = ByteBuffer.allocate(CassetteIndex.ENTRY_SIZE);
+  private long lastIndexed = -1;
+  private long maxTimestamp = Long.MIN_VALUE;
+
+  public CassetteIndexWriter(Sink sink) {
+    this(sink, DEFAULT_INTERVAL_BYTES);
+  }
+
+  public CassetteIndexWriter(Sink sink, long intervalBytes) {
+    this.sink = sink;
+    this.intervalBytes = intervalBytes;
+  }
+
+  /**
+   * Account for a record about to be written at {@code position} of the partition file, indexing
+   * it if enough data has been written since the last entry.
+   */
+  public void append(long timestamp, long offset, long position) {
+    if (lastIndexed < 0 || position - lastIndexed >= intervalBytes) {
+      entry.clear();
+      entry.putLong(maxTimestamp);
+      entry.putLong(offset);
+      entry.putLong(position);
+      sink.writeBytes(entry.array());
+      lastIndexed = position;
+    }
+    if (timestamp > maxTimestamp) {
+      maxTimestamp = timestamp;
+    }
+  }
+
+  public String getPath() {
+    return sink.getPath();
+  }
+
+  public void flush() {
+    sink.flush();
+  }
+
+  @Override
+  public void close() {
+    sink.close();
+  }
+}
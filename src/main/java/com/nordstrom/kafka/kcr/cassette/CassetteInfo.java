@@ -1,48 +1,67 @@
 package com.nordstrom.kafka.kcr.cassette;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+/**
+ * Summary of a cassette. Read from the partition statistics in the manifest when the recording
+ * finished cleanly; otherwise every segment of every partition file is scanned, in parallel, for
+ * its timestamps.
+ */
 public class CassetteInfo {
   private final String cassette;
   private final Instant earliest;
   private final Instant latest;
   private final List<CassettePartitionInfo> partitions = new ArrayList<>();
-  private final int totalRecords;
+  private final long totalRecords;
   private final Duration cassetteLength;
 
   public CassetteInfo(String cassette) {
     this.cassette = cassette;
 
     File cassetteDir = new File(cassette);
-    String[] filelist = cassetteDir.list();
-
-    if (filelist != null) {
-      for (String file : filelist) {
-        if (!file.contains("manifest")) {
-          CassettePartitionInfo partition = new CassettePartitionInfo(cassette, file);
-          partitions.add(partition);
-        }
+    CassetteManifest manifest = CassetteManifest.read(cassetteDir);
+
+    if (manifest != null && manifest.isComplete()) {
+      for (PartitionStats stats : manifest.getPartitionStats()) {
+        partitions.add(new CassettePartitionInfo(stats));
       }
+    } else if (cassetteDir.isDirectory()) {
+      CassetteReader reader = new CassetteReader(cassetteDir);
+      partitions.addAll(
+          reader.getPartitionFiles().parallelStream().map(file -> scan(reader, file)).toList());
     }
 
     long t0 =
-        partitions.stream().map(CassettePartitionInfo::getEarliest).min(Long::compareTo).orElse(0L);
+        partitions.stream()
+            .filter(p -> p.getCount() > 0)
+            .mapToLong(CassettePartitionInfo::getEarliest)
+            .min()
+            .orElse(0L);
     long t1 =
-        partitions.stream().map(CassettePartitionInfo::getLatest).max(Long::compareTo).orElse(0L);
+        partitions.stream()
+            .filter(p -> p.getCount() > 0)
+            .mapToLong(CassettePartitionInfo::getLatest)
+            .max()
+            .orElse(0L);
 
     earliest = new Date(t0).toInstant();
     latest = new Date(t1).toInstant();
     cassetteLength = Duration.between(earliest, latest);
-    totalRecords = partitions.stream().mapToInt(CassettePartitionInfo::getCount).sum();
+    totalRecords = partitions.stream().mapToLong(CassettePartitionInfo::getCount).sum();
+  }
+
+  /** Scan the segments of a partition file, in parallel, for their timestamps. */
+  private CassettePartitionInfo scan(CassetteReader reader, String file) {
+    List<CassettePartitionInfo> segments =
+        reader.segmentFiles(file).parallelStream()
+            .map(segment -> new CassettePartitionInfo(cassette, segment.getName()))
+            .toList();
+    return new CassettePartitionInfo(file, segments);
   }
 
   public String summary() {
@@ -73,7 +92,7 @@ public class CassetteInfo {
     return latest;
   }
 
-  public int getTotalRecords() {
+  public long getTotalRecords() {
     return totalRecords;
   }
 
@@ -81,36 +100,59 @@ public class CassetteInfo {
     return cassetteLength;
   }
 
+  public List<CassettePartitionInfo> getPartitions() {
+    return partitions;
+  }
+
   public static class CassettePartitionInfo {
+    private final String file;
     private final long earliest;
     private final long latest;
-    private final int count;
+    private final long count;
 
+    public CassettePartitionInfo(PartitionStats stats) {
+      file = stats.getFile();
+      earliest = stats.getEarliestTimestamp();
+      latest = stats.getLatestTimestamp();
+      count = stats.getCount();
+    }
+
+    /** The partition file {@code file}, made of {@code segments}. */
+    public CassettePartitionInfo(String file, List<CassettePartitionInfo> segments) {
+      this.file = file;
+      earliest = segments.stream().mapToLong(s -> s.earliest).min().orElse(Long.MAX_VALUE);
+      latest = segments.stream().mapToLong(s -> s.latest).max().orElse(Long.MIN_VALUE);
+      count = segments.stream().mapToLong(s -> s.count).sum();
+    }
+
+    /** Scan a partition or segment file. */
     public CassettePartitionInfo(String cassette, String file) {
-      ObjectMapper mapper = new ObjectMapper();
-      long first = Long.MAX_VALUE;
-      long last = Long.MIN_VALUE;
-      int recordCount = 0;
-
-      try (BufferedReader reader = new BufferedReader(new FileReader(new File(cassette, file)))) {
-        String line;
-        while ((line = reader.readLine()) != null) {
-          CassetteRecord record = mapper.readValue(line, CassetteRecord.class);
-          if (record.getTimestamp() < first) {
-            first = record.getTimestamp();
-          }
-          if (record.getTimestamp() > last) {
-            last = record.getTimestamp();
-          }
-          recordCount++;
-        }
-      } catch (IOException e) {
-        throw new RuntimeException(e);
-      }
+      this.file = file;
+      File partitionFile = new File(cassette, file);
+      long[] first = {Long.MAX_VALUE};
+      long[] last = {Long.MIN_VALUE};
+      long[] recordCount = {0L};
+
+      CassetteFormat.detect(partitionFile)
+          .forEachTimestamp(
+              partitionFile,
+              timestamp -> {
+                if (timestamp < first[0]) {
+                  first[0] = timestamp;
+                }
+                if (timestamp > last[0]) {
+                  last[0] = timestamp;
+                }
+                recordCount[0]++;
+              });
+
+      earliest = first[0];
+      latest = last[0];
+      count = recordCount[0];
+    }
 
-      earliest = first;
-      latest = last;
-      count = recordCount;
+    public String getFile() {
+      return file;
     }
 
     public long getEarliest() {
@@ -121,7 +163,7 @@ public class CassetteInfo {
       return latest;
     }
 
-    public int getCount() {
+    public long getCount() {
       return count;
     }
   }
@@ -1,35 +1,226 @@
 package com.nordstrom.kafka.kcr.cassette;
 
-import com.nordstrom.kafka.kcr.io.Sink;
-import com.nordstrom.kafka.kcr.io.SinkFactory;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Describes a cassette: where and when it was recorded, its format, and (once recording has
+ * finished) the statistics of every partition file. Stored as JSON in {@code <topic>.manifest},
+ * where a cassette of several topics is named after the first of them and how many more there are.
+ *
+ * <p>Every write goes to a temporary file in the cassette directory that then replaces the manifest
+ * atomically, so a crash part way through leaves the previous manifest rather than a torn one.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class CassetteManifest {
+  public static final String SUFFIX = ".manifest";
   private static final Logger log = LoggerFactory.getLogger(CassetteManifest.class);
-  private final Sink manifest;
+  private static final ObjectMapper MAPPER =
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  @JsonIgnore private Path manifest;
+
+  @JsonProperty("directory")
+  private String directory;
+
+  @JsonProperty("id")
+  private String id;
+
+  @JsonProperty("name")
+  private String name;
+
+  @JsonProperty("partitions")
+  private int partitions;
+
+  @JsonProperty("topic")
+  private String topic;
+
+  @JsonProperty("topics")
+  private Map<String, Integer> topics;
+
+  @JsonProperty("version")
+  private String version;
+
+  @JsonProperty("format")
+  private CassetteFormat format;
+
+  @JsonProperty("start")
+  private String start;
+
+  @JsonProperty("end")
+  private String end;
+
+  @JsonProperty("partitionStats")
+  private List<PartitionStats> partitionStats;
+
+  // Default constructor for Jackson
+  public CassetteManifest() {}
 
   public CassetteManifest(
-      SinkFactory sinkFactory,
       String directory,
       String id,
       String name,
       int partitions,
       String topic,
+      CassetteFormat format,
       Instant start) {
-    manifest = sinkFactory.create(directory, topic + ".manifest");
-
-    // TODO serialize as yaml
-    manifest.writeText("---\n");
-    manifest.writeText("directory:" + directory + "\n");
-    manifest.writeText("id:" + id + "\n");
-    manifest.writeText("name:" + name + "\n");
-    manifest.writeText("partitions:" + partitions + "\n");
-    manifest.writeText("topic:" + topic + "\n");
-    manifest.writeText("version:" + CassetteVersion.VERSION + "\n");
-    manifest.writeText("start:" + start);
+    this(directory, id, name, topic, Map.of(topic, partitions), format, start);
+  }
+
+  /**
+   * @param label names the manifest file; the topic itself for a single-topic cassette
+   * @param topics number of partitions of every recorded topic
+   */
+  public CassetteManifest(
+      String directory,
+      String id,
+      String name,
+      String label,
+      Map<String, Integer> topics,
+      CassetteFormat format,
+      Instant start) {
+    manifest = Path.of(directory, label + SUFFIX);
+
+    this.directory = directory;
+    this.id = id;
+    this.name = name;
+    this.partitions = topics.values().stream().mapToInt(Integer::intValue).sum();
+    this.topic = label;
+    this.topics = new LinkedHashMap<>(topics);
+    this.version = format.getVersion();
+    this.format = format;
+    this.start = start.toString();
+    write();
 
     log.trace(".init.ok");
   }
+
+  /**
+   * Record the final partition statistics and complete the manifest. A manifest without an end
+   * time belongs to a recording that did not finish cleanly.
+   */
+  public void close(List<PartitionStats> stats, Instant end) {
+    this.partitionStats = new ArrayList<>(stats);
+    this.end = end.toString();
+    write();
+  }
+
+  private void write() {
+    Path temp = null;
+    try {
+      Files.createDirectories(manifest.getParent());
+      temp = Files.createTempFile(manifest.getParent(), manifest.getFileName().toString(), ".tmp");
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        ByteBuffer bytes = ByteBuffer.wrap(MAPPER.writeValueAsBytes(this));
+        while (bytes.hasRemaining()) {
+          channel.write(bytes);
+        }
+        // On storage before it replaces the manifest, or a crash could leave an empty one
+        channel.force(true);
+      }
+      Files.move(temp, manifest, StandardCopyOption.ATOMIC_MOVE);
+      temp = null;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (IOException e) {
+          log.warn(".write: could not delete {}", temp, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the manifest of the cassette in {@code cassetteDir}, or {@code null} if it has none or
+   *     it predates JSON manifests
+   */
+  public static CassetteManifest read(File cassetteDir) {
+    File[] files = cassetteDir.listFiles((dir, n) -> n.endsWith(SUFFIX));
+    if (files == null || files.length == 0) {
+      return null;
+    }
+    try {
+      return MAPPER.readValue(files[0], CassetteManifest.class);
+    } catch (IOException e) {
+      log.debug(".read: not a json manifest {}", files[0], e);
+      return null;
+    }
+  }
+
+  /** Whether the recording finished cleanly, so its partition statistics are complete. */
+  @JsonIgnore
+  public boolean isComplete() {
+    return end != null && partitionStats != null;
+  }
+
+  public String getDirectory() {
+    return directory;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getPartitions() {
+    return partitions;
+  }
+
+  public String getTopic() {
+    return topic;
+  }
+
+  /**
+   * @return number of partitions of every recorded topic; manifests written before cassettes could
+   *     hold several topics only have {@link #getTopic()}
+   */
+  public Map<String, Integer> getTopics() {
+    return topics != null ? topics : Map.of(topic, partitions);
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public CassetteFormat getFormat() {
+    return format;
+  }
+
+  public String getStart() {
+    return start;
+  }
+
+  public String getEnd() {
+    return end;
+  }
+
+  public List<PartitionStats> getPartitionStats() {
+    return partitionStats;
+  }
 }
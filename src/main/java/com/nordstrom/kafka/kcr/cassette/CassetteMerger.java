@@ -0,0 +1,151 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import com.nordstrom.kafka.kcr.io.SinkFactory;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Combines several cassettes, say recordings of the same topic from several sessions or hosts, into
+ * one. Every source file of a partition holds the same topic-partition in log order, so each
+ * partition file is a streaming k-way merge by offset of that partition's files in the source
+ * cassettes, and memory is bounded by the number of sources rather than by their size. Merging by
+ * offset rather than timestamp keeps records in log order even when their create times are not
+ * ascending, and playback takes its timing from the timestamps either way.
+ *
+ * <p>A record recorded more than once has the same offset in every copy, so the merge brings the
+ * copies together; any offset at or below the last one written is dropped.
+ */
+public class CassetteMerger {
+  private static final Logger log = LoggerFactory.getLogger(CassetteMerger.class);
+
+  private final List<File> sources;
+  private final SinkFactory sinkFactory;
+  private final CassetteFormat format;
+  private final int threads;
+  private final AtomicLong records = new AtomicLong();
+  private final AtomicLong duplicates = new AtomicLong();
+
+  /**
+   * @param threads number of partitions merged at once
+   */
+  public CassetteMerger(
+      List<File> sources, SinkFactory sinkFactory, CassetteFormat format, int threads) {
+    if (sources.isEmpty()) {
+      throw new IllegalArgumentException("Must merge at least one cassette");
+    }
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Number of threads must be > 0");
+    }
+    this.sources = List.copyOf(sources);
+    this.sinkFactory = sinkFactory;
+    this.format = format;
+    this.threads = threads;
+  }
+
+  /**
+   * Merge the cassettes into a new cassette under {@code dataDirectory}. Its manifest holds the
+   * statistics of the merged partitions.
+   *
+   * @return the new cassette, closed
+   */
+  public Cassette merge(String dataDirectory, String id) {
+    // The segment files of every partition, by partition file, then by source
+    SortedMap<String, List<List<File>>> partitions = new TreeMap<>();
+    Map<String, Integer> topics = new LinkedHashMap<>();
+    for (File source : sources) {
+      String[] names = source.list();
+      if (names == null) {
+        throw new IllegalArgumentException("Cannot read cassette directory " + source);
+      }
+      SortedMap<String, List<String>> segments = Cassette.segments(names);
+      for (Map.Entry<String, List<String>> partition : segments.entrySet()) {
+        List<File> files = partition.getValue().stream().map(f -> new File(source, f)).toList();
+        partitions.computeIfAbsent(partition.getKey(), k -> new ArrayList<>()).add(files);
+      }
+      CassetteConverter.topics(source, segments.keySet())
+          .forEach((topic, count) -> topics.merge(topic, count, Math::max));
+    }
+    if (partitions.isEmpty()) {
+      throw new IllegalArgumentException("No partition files in " + sources);
+    }
+
+    Cassette cassette = new Cassette(dataDirectory, topics, null, sinkFactory, format);
+    cassette.create(id);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> done = new ArrayList<>();
+      for (Map.Entry<String, List<List<File>>> partition : partitions.entrySet()) {
+        String file = partition.getKey();
+        PartitionWriter writer =
+            cassette.getWriter(Cassette.topicOf(file), Cassette.partitionOf(file));
+        done.add(executor.submit(() -> merge(file, partition.getValue(), writer)));
+      }
+      for (Future<?> future : done) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException cause
+          ? cause
+          : new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+      cassette.close();
+    }
+    return cassette;
+  }
+
+  private void merge(String file, List<List<File>> sourceSegments, PartitionWriter writer) {
+    List<CassetteRecordReader> readers = new ArrayList<>();
+    for (List<File> segments : sourceSegments) {
+      readers.add(new SegmentedRecordReader(segments));
+    }
+    long count = 0L;
+    long dropped = 0L;
+    long lastOffset = Long.MIN_VALUE;
+    try (CassetteRecordReader reader =
+        new MergedRecordReader(readers, CassetteRecord::getOffset)) {
+      CassetteRecord record;
+      while ((record = reader.next()) != null) {
+        if (record.getOffset() <= lastOffset) {
+          dropped++;
+          continue;
+        }
+        lastOffset = record.getOffset();
+        writer.write(record);
+        count++;
+      }
+    }
+    records.addAndGet(count);
+    duplicates.addAndGet(dropped);
+    log.info(".merge: file={}, records={}, duplicates={}", file, count, dropped);
+  }
+
+  /**
+   * @return records written to the merged cassette so far
+   */
+  public long getRecords() {
+    return records.get();
+  }
+
+  /**
+   * @return records dropped so far as copies of a record already written
+   */
+  public long getDuplicates() {
+    return duplicates.get();
+  }
+}
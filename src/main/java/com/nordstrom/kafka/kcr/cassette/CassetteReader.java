@@ -0,0 +1,324 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the records of a cassette, whatever format and segmenting its partition files were
+ * recorded with, optionally restricted to a window of record timestamps. Segments that the manifest
+ * shows to be outside the window are skipped, and the others are entered through their index.
+ *
+ * <p>Records can be read three ways:
+ *
+ * <ul>
+ *   <li>{@link #open(String)} and {@link #openMerged()} return readers that reuse their record, for
+ *       code that handles one record at a time, such as playback. They return every record from
+ *       where the index seeks to, so the caller applies the window.
+ *   <li>{@link #iterator(String)} and {@link #iterator()} iterate over one partition, or over every
+ *       partition merged by timestamp, returning records within the window.
+ *   <li>{@link #stream()} returns the records within the window, partition by partition, from a
+ *       {@link Spliterator} that splits partition files at their index entries, which are always at
+ *       record boundaries, so a parallel stream reads one cassette on every core.
+ * </ul>
+ *
+ * <p>Iterated and streamed records are copies and stay valid. Like the per-partition playback
+ * loop, iteration treats timestamps within a partition as ascending for the end of the window.
+ * Splitting relies, as {@link CassetteIndex#positionForOffset(long)} does, on offsets ascending
+ * within a partition file. Iterators and streams close their files once exhausted; {@link
+ * #close()} closes those abandoned part way.
+ */
+public class CassetteReader implements AutoCloseable {
+  private static final Logger log = LoggerFactory.getLogger(CassetteReader.class);
+
+  private final File cassetteDir;
+  private final long fromTimestamp;
+  private final long toTimestamp;
+  private final SortedMap<String, List<String>> segments;
+  private final Map<String, SegmentStats> segmentStats = new HashMap<>();
+  private final Set<CassetteRecordReader> open = ConcurrentHashMap.newKeySet();
+
+  public CassetteReader(File cassetteDir) {
+    this(cassetteDir, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param fromTimestamp earliest record timestamp to read
+   * @param toTimestamp latest record timestamp to read, inclusive
+   */
+  public CassetteReader(File cassetteDir, long fromTimestamp, long toTimestamp) {
+    if (toTimestamp < fromTimestamp) {
+      throw new IllegalArgumentException("Window must end after it starts");
+    }
+    String[] names = cassetteDir.list();
+    if (names == null) {
+      throw new IllegalArgumentException("Cannot read cassette directory " + cassetteDir);
+    }
+    this.cassetteDir = cassetteDir;
+    this.fromTimestamp = fromTimestamp;
+    this.toTimestamp = toTimestamp;
+    segments = Cassette.segments(names);
+
+    CassetteManifest manifest = CassetteManifest.read(cassetteDir);
+    if (manifest != null && manifest.isComplete()) {
+      for (PartitionStats stats : manifest.getPartitionStats()) {
+        if (stats.getSegments() != null) {
+          stats.getSegments().forEach(segment -> segmentStats.put(segment.getFile(), segment));
+        }
+      }
+    }
+  }
+
+  public File getCassetteDir() {
+    return cassetteDir;
+  }
+
+  /**
+   * @return the names of the cassette's partition files, in order
+   */
+  public List<String> getPartitionFiles() {
+    return List.copyOf(segments.keySet());
+  }
+
+  /**
+   * @return a partition's segments, skipping those the manifest shows to be outside the window
+   */
+  public List<File> segmentFiles(String partitionFile) {
+    List<String> names = segments.get(partitionFile);
+    if (names == null) {
+      throw new IllegalArgumentException("No partition file " + partitionFile);
+    }
+    List<File> files = new ArrayList<>();
+    for (String segment : names) {
+      SegmentStats stats = segmentStats.get(segment);
+      if (stats != null
+          && (stats.isEmpty()
+              || stats.getLatestTimestamp() < fromTimestamp
+              || stats.getEarliestTimestamp() > toTimestamp)) {
+        log.trace(".skip:segment={}", segment);
+        continue;
+      }
+      files.add(new File(cassetteDir, segment));
+    }
+    return files;
+  }
+
+  /**
+   * @return a reader over the segments of a partition, positioned through their indexes at the
+   *     start of the window
+   */
+  public CassetteRecordReader open(String partitionFile) {
+    return new SegmentedRecordReader(segmentFiles(partitionFile), fromTimestamp);
+  }
+
+  /**
+   * @return a reader over every partition merged by timestamp; {@link MergedRecordReader#source()}
+   *     is the index of the record's partition file in {@link #getPartitionFiles()}
+   */
+  public MergedRecordReader openMerged() {
+    List<CassetteRecordReader> readers = new ArrayList<>();
+    try {
+      for (String partitionFile : segments.keySet()) {
+        readers.add(open(partitionFile));
+      }
+    } catch (RuntimeException e) {
+      readers.forEach(CassetteRecordReader::close);
+      throw e;
+    }
+    return new MergedRecordReader(readers);
+  }
+
+  /**
+   * @return the records of a partition within the window
+   */
+  public Iterator<CassetteRecord> iterator(String partitionFile) {
+    return new RecordIterator(opened(open(partitionFile)));
+  }
+
+  /**
+   * @return the records of every partition within the window, merged by timestamp
+   */
+  public Iterator<CassetteRecord> iterator() {
+    return new RecordIterator(opened(openMerged()));
+  }
+
+  /**
+   * @return the records of every partition within the window, split at record boundaries
+   */
+  public Spliterator<CassetteRecord> spliterator() {
+    List<Range> ranges = new ArrayList<>();
+    for (String partitionFile : segments.keySet()) {
+      for (File segment : segmentFiles(partitionFile)) {
+        ranges.addAll(ranges(segment));
+      }
+    }
+    return new RangeSpliterator(ranges, 0, ranges.size());
+  }
+
+  /**
+   * @return a sequential stream over {@link #spliterator()}; make it parallel to read every range
+   *     of the cassette at once
+   */
+  public Stream<CassetteRecord> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  /** Close the files of any iterator or stream that was not read to its end. */
+  @Override
+  public void close() {
+    for (CassetteRecordReader reader : open) {
+      closed(reader);
+    }
+  }
+
+  /**
+   * The ranges between consecutive index entries of a segment, leaving out those that the index
+   * shows to be before the window.
+   */
+  private List<Range> ranges(File segment) {
+    CassetteIndex index = CassetteIndex.load(segment);
+    if (index == null || index.size() <= 1) {
+      return List.of(new Range(segment, 0L, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+    List<Range> ranges = new ArrayList<>();
+    int last = index.size() - 1;
+    for (int i = 0; i <= last; i++) {
+      // Every record before the next entry is earlier than its timestamp high-water mark
+      if (i < last && index.timestampAt(i + 1) < fromTimestamp) {
+        continue;
+      }
+      ranges.add(
+          new Range(
+              segment,
+              i == 0 ? 0L : index.positionAt(i),
+              i == 0 ? Long.MIN_VALUE : index.offsetAt(i),
+              i == last ? Long.MAX_VALUE : index.offsetAt(i + 1)));
+    }
+    return ranges;
+  }
+
+  private <R extends CassetteRecordReader> R opened(R reader) {
+    open.add(reader);
+    return reader;
+  }
+
+  private void closed(CassetteRecordReader reader) {
+    if (open.remove(reader)) {
+      reader.close();
+    }
+  }
+
+  /**
+   * The records of a segment from {@code position}, with offsets from {@code fromOffset} up to
+   * {@code toOffset}, exclusive.
+   */
+  private record Range(File segment, long position, long fromOffset, long toOffset) {}
+
+  private class RecordIterator implements Iterator<CassetteRecord> {
+    private CassetteRecordReader reader;
+    private CassetteRecord next;
+
+    private RecordIterator(CassetteRecordReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && reader != null) {
+        CassetteRecord record = reader.next();
+        if (record == null || record.getTimestamp() > toTimestamp) {
+          closed(reader);
+          reader = null;
+        } else if (record.getTimestamp() >= fromTimestamp) {
+          next = record.copy();
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public CassetteRecord next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      CassetteRecord record = next;
+      next = null;
+      return record;
+    }
+  }
+
+  /** Reads ranges {@code next} to {@code end} of the list, splitting off the first half. */
+  private class RangeSpliterator implements Spliterator<CassetteRecord> {
+    private final List<Range> ranges;
+    private final int end;
+    private int next;
+    private Range range;
+    private CassetteRecordReader reader;
+
+    private RangeSpliterator(List<Range> ranges, int next, int end) {
+      this.ranges = ranges;
+      this.next = next;
+      this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super CassetteRecord> action) {
+      while (true) {
+        if (reader == null) {
+          if (next >= end) {
+            return false;
+          }
+          range = ranges.get(next++);
+          reader = opened(CassetteFormat.open(range.segment(), range.position()));
+        }
+        CassetteRecord record = reader.next();
+        if (record == null
+            || record.getOffset() >= range.toOffset()
+            || record.getTimestamp() > toTimestamp) {
+          closed(reader);
+          reader = null;
+        } else if (record.getOffset() >= range.fromOffset()
+            && record.getTimestamp() >= fromTimestamp) {
+          action.accept(record.copy());
+          return true;
+        }
+      }
+    }
+
+    @Override
+    public Spliterator<CassetteRecord> trySplit() {
+      // Ranges are only split off before this one starts reading, to keep them in order
+      if (reader != null || end - next < 2) {
+        return null;
+      }
+      int mid = next + (end - next) / 2;
+      Spliterator<CassetteRecord> prefix = new RangeSpliterator(ranges, next, mid);
+      next = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      // Record counts are not known up front; splitting stops at single ranges
+      return next >= end && reader == null ? 0L : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL | IMMUTABLE;
+    }
+  }
+}
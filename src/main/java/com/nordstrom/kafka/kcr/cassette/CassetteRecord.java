@@ -1,12 +1,24 @@
 package com.nordstrom.kafka.kcr.cassette;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+/**
+ * A recorded Kafka message. Key, value and headers are held as the raw bytes read from the topic;
+ * the {@code key}/{@code value}/{@code headers} JSON properties are the v2 text representation
+ * (string key, hex value, string headers) derived from them.
+ */
 public class CassetteRecord {
-  @JsonProperty("headers")
-  private Map<String, String> headers = new HashMap<>();
+  private List<Header> headers = new ArrayList<>();
 
   @JsonProperty("timestamp")
   private long timestamp;
@@ -17,23 +29,16 @@ public class CassetteRecord {
   @JsonProperty("offset")
   private long offset;
 
-  @JsonProperty("key")
-  private String key;
+  private byte[] key;
 
-  @JsonProperty("value")
-  private String value;
+  private byte[] value;
 
   // Default constructor for Jackson
   public CassetteRecord() {}
 
   public CassetteRecord(
-      Map<String, String> headers,
-      long timestamp,
-      int partition,
-      long offset,
-      String key,
-      String value) {
-    this.headers = headers != null ? headers : new HashMap<>();
+      List<Header> headers, long timestamp, int partition, long offset, byte[] key, byte[] value) {
+    this.headers = headers != null ? headers : new ArrayList<>();
     this.timestamp = timestamp;
     this.partition = partition;
     this.offset = offset;
@@ -41,24 +46,59 @@ public class CassetteRecord {
     this.value = value;
   }
 
+  /**
+   * @return a copy that stays valid when the reader that returned this record reuses it
+   */
+  public CassetteRecord copy() {
+    return new CassetteRecord(new ArrayList<>(headers), timestamp, partition, offset, key, value);
+  }
+
   public void withHeaderTimestamp(String key) {
-    if (headers.containsKey(key)) {
-      String value = headers.get(key);
-      if (value != null) {
-        try {
-          timestamp = Long.parseLong(value);
-        } catch (NumberFormatException e) {
-          // Keep original timestamp if parsing fails
-        }
+    String value = null;
+    for (Header header : headers) {
+      if (header.key().equals(key) && header.value() != null) {
+        value = new String(header.value(), StandardCharsets.UTF_8);
+      }
+    }
+    if (value != null) {
+      try {
+        timestamp = Long.parseLong(value);
+      } catch (NumberFormatException e) {
+        // Keep original timestamp if parsing fails
       }
     }
   }
 
+  @JsonProperty("headers")
   public Map<String, String> getHeaders() {
-    return headers;
+    Map<String, String> map = new LinkedHashMap<>();
+    for (Header header : headers) {
+      map.put(
+          header.key(),
+          header.value() != null ? new String(header.value(), StandardCharsets.UTF_8) : null);
+    }
+    return map;
   }
 
+  @JsonProperty("headers")
   public void setHeaders(Map<String, String> headers) {
+    this.headers = new ArrayList<>();
+    if (headers != null) {
+      for (Map.Entry<String, String> header : headers.entrySet()) {
+        byte[] bytes =
+            header.getValue() != null ? header.getValue().getBytes(StandardCharsets.UTF_8) : null;
+        this.headers.add(new RecordHeader(header.getKey(), bytes));
+      }
+    }
+  }
+
+  @JsonIgnore
+  public List<Header> getRawHeaders() {
+    return headers;
+  }
+
+  @JsonIgnore
+  public void setRawHeaders(List<Header> headers) {
     this.headers = headers;
   }
 
@@ -86,19 +126,47 @@ public class CassetteRecord {
     this.offset = offset;
   }
 
+  @JsonProperty("key")
   public String getKey() {
-    return key;
+    return key != null ? new String(key, StandardCharsets.UTF_8) : null;
   }
 
+  @JsonProperty("key")
   public void setKey(String key) {
+    this.key = key != null ? key.getBytes(StandardCharsets.UTF_8) : null;
+  }
+
+  @JsonIgnore
+  public byte[] getKeyBytes() {
+    return key;
+  }
+
+  @JsonIgnore
+  public void setKeyBytes(byte[] key) {
     this.key = key;
   }
 
+  @JsonProperty("value")
   public String getValue() {
-    return value;
+    return value != null ? Hex.encodeHexString(value) : null;
   }
 
+  @JsonProperty("value")
   public void setValue(String value) {
+    try {
+      this.value = value != null ? Hex.decodeHex(value) : null;
+    } catch (DecoderException e) {
+      throw new IllegalArgumentException("Value is not hex encoded", e);
+    }
+  }
+
+  @JsonIgnore
+  public byte[] getValueBytes() {
+    return value;
+  }
+
+  @JsonIgnore
+  public void setValueBytes(byte[] value) {
     this.value = value;
   }
 }
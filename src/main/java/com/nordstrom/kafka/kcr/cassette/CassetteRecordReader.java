@@ -0,0 +1,15 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+/**
+ * Sequential reader over the records of one partition file. Readers may reuse the returned {@link
+ * CassetteRecord}, so a record is only valid until the next call to {@link #next()}.
+ */
+public interface CassetteRecordReader extends AutoCloseable {
+  /**
+   * @return the next record, or {@code null} once the file is exhausted
+   */
+  CassetteRecord next();
+
+  @Override
+  void close();
+}
@@ -0,0 +1,14 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+/**
+ * Appends encoded records to one partition file's sink. Writers may keep encoding state between
+ * records, so every sink gets its own.
+ */
+public interface CassetteRecordWriter {
+  void write(CassetteRecord record);
+
+  /** Hand any records the writer still holds to the sink. */
+  default void flush() {
+    // Nothing held by default
+  }
+}
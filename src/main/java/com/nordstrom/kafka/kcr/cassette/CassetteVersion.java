@@ -1,7 +1,17 @@
 package com.nordstrom.kafka.kcr.cassette;
 
 public class CassetteVersion {
-  public static final String VERSION = "2.0";
+  /** JSON lines with hex-encoded values. */
+  public static final String V2 = "2.0";
+
+  /** Length-prefixed binary records. */
+  public static final String V3 = "3.0";
+
+  /** Blocks of length-prefixed binary records, compressed. */
+  public static final String V4 = "4.0";
+
+  /** Version written by new recordings. */
+  public static final String VERSION = V3;
 
   private CassetteVersion() {
     // Utility class
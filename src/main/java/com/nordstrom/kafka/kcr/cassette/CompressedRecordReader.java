@@ -0,0 +1,91 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads v4 cassette files written by {@link CompressedRecordWriter}, decompressing one block at a
+ * time with the codec named in the file's header.
+ */
+public class CompressedRecordReader implements CassetteRecordReader {
+  private static final Logger log = LoggerFactory.getLogger(CompressedRecordReader.class);
+
+  private final File file;
+  private final DataInputStream input;
+  private final BlockCodec codec;
+  private final CassetteRecord record = new CassetteRecord();
+  private ByteBuffer block;
+
+  public CompressedRecordReader(File file) {
+    this(file, 0L);
+  }
+
+  /** Open {@code file} positioned at the block starting at byte {@code position}. */
+  public CompressedRecordReader(File file, long position) {
+    this.file = file;
+    try {
+      FileInputStream stream = new FileInputStream(file);
+      input = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+      try {
+        byte[] header = new byte[CompressedRecordWriter.HEADER_SIZE];
+        input.readFully(header);
+        byte[] magic = Arrays.copyOf(header, CompressedRecordWriter.MAGIC.length);
+        if (!Arrays.equals(magic, CompressedRecordWriter.MAGIC)) {
+          throw new IllegalArgumentException("Not a compressed cassette file: " + file);
+        }
+        codec = BlockCodecs.forId(header[CompressedRecordWriter.MAGIC.length]);
+        input.skipNBytes(Math.max(0L, position - CompressedRecordWriter.HEADER_SIZE));
+      } catch (IOException | RuntimeException e) {
+        input.close();
+        throw e;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public CassetteRecord next() {
+    while (block == null || !block.hasRemaining()) {
+      if (!readBlock()) {
+        return null;
+      }
+    }
+    block.getInt();
+    return BinaryRecordCodec.decode(block, record);
+  }
+
+  private boolean readBlock() {
+    try {
+      int compressedLength = input.readInt();
+      int length = input.readInt();
+      byte[] compressed = new byte[compressedLength];
+      input.readFully(compressed);
+      block = ByteBuffer.wrap(codec.decompress(compressed, length));
+      return true;
+    } catch (EOFException e) {
+      // End of file, or a block truncated by a recorder that died mid-write
+      log.trace(".readBlock: end of {}", file);
+      return false;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      input.close();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
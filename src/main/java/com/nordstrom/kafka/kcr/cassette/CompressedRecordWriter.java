@@ -0,0 +1,84 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import com.nordstrom.kafka.kcr.io.Sink;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes v4 cassette files: v3 binary records gathered into blocks that are compressed as a whole,
+ * which compresses far better than records one by one. A file starts with {@link #MAGIC} and the
+ * id of its {@link BlockCodec}, followed by blocks (integers big-endian):
+ *
+ * <pre>
+ * int    compressed length
+ * int    uncompressed length
+ * bytes  compressed v3 records, each with its length prefix
+ * </pre>
+ *
+ * <p>Records are buffered until a block is full or the writer is flushed. A record is always in
+ * the block that starts at the sink position it was written at, so index positions taken before
+ * each write point at the start of the record's block.
+ */
+public class CompressedRecordWriter implements CassetteRecordWriter {
+  public static final byte[] MAGIC = {'K', 'C', 'R', 4};
+  public static final int HEADER_SIZE = MAGIC.length + 1;
+  static final int BLOCK_SIZE = 256 * 1024;
+
+  private final Sink sink;
+  private final BlockCodec codec;
+  private final int blockSize;
+  private byte[] block;
+  private int length;
+
+  public CompressedRecordWriter(Sink sink, BlockCodec codec) {
+    this(sink, codec, BLOCK_SIZE);
+  }
+
+  /**
+   * @param blockSize uncompressed size at which a block is compressed and written
+   */
+  public CompressedRecordWriter(Sink sink, BlockCodec codec, int blockSize) {
+    this.sink = sink;
+    this.codec = codec;
+    this.blockSize = blockSize;
+    block = new byte[blockSize];
+  }
+
+  /** Write the header of a file of blocks compressed with {@code codec}. */
+  public static void writeHeader(Sink sink, BlockCodec codec) {
+    byte[] header = Arrays.copyOf(MAGIC, HEADER_SIZE);
+    header[MAGIC.length] = codec.id();
+    sink.writeBytes(header);
+  }
+
+  @Override
+  public synchronized void write(CassetteRecord record) {
+    byte[] encoded = BinaryRecordCodec.encode(record);
+    if (length + encoded.length > block.length) {
+      block = Arrays.copyOf(block, Math.max(length + encoded.length, block.length * 2));
+    }
+    System.arraycopy(encoded, 0, block, length, encoded.length);
+    length += encoded.length;
+    if (length >= blockSize) {
+      flush();
+    }
+  }
+
+  /** Compress and write the records buffered so far as one block. */
+  @Override
+  public synchronized void flush() {
+    if (length == 0) {
+      return;
+    }
+    byte[] compressed = codec.compress(block, length);
+    ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+    header.putInt(compressed.length).putInt(length);
+    sink.writeBytes(header.array());
+    sink.writeBytes(compressed);
+    length = 0;
+    if (block.length > blockSize) {
+      // Shrink back after an oversized record
+      block = new byte[blockSize];
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/** Compresses blocks with the JDK's zlib {@link Deflater}, checksummed by zlib's Adler-32. */
+public class DeflateBlockCodec implements BlockCodec {
+  private final int level;
+
+  public DeflateBlockCodec() {
+    this(Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * @param level {@link Deflater} compression level, 1 (fastest) to 9 (smallest)
+   */
+  public DeflateBlockCodec(int level) {
+    this.level = level;
+  }
+
+  @Override
+  public byte id() {
+    return 1;
+  }
+
+  @Override
+  public String name() {
+    return "deflate";
+  }
+
+  @Override
+  public byte[] compress(byte[] block, int length) {
+    Deflater deflater = new Deflater(level);
+    try {
+      deflater.setInput(block, 0, length);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 2));
+      byte[] buffer = new byte[64 * 1024];
+      while (!deflater.finished()) {
+        int n = deflater.deflate(buffer);
+        out.write(buffer, 0, n);
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  @Override
+  public byte[] decompress(byte[] compressed, int length) {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressed);
+      byte[] block = new byte[length];
+      int n = 0;
+      while (n < length && !inflater.finished()) {
+        int inflated = inflater.inflate(block, n, length - n);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        n += inflated;
+      }
+      if (n != length) {
+        throw new RuntimeException("Corrupt block: " + n + " of " + length + " bytes inflated");
+      }
+      return block;
+    } catch (DataFormatException e) {
+      throw new RuntimeException(e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
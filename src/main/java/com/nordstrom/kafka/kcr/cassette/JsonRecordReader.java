@@ -0,0 +1,56 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/** Reads v2 cassette files: one JSON {@link CassetteRecord} per line. */
+public class JsonRecordReader implements CassetteRecordReader {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final BufferedReader reader;
+
+  public JsonRecordReader(File file) {
+    this(file, 0L);
+  }
+
+  /** Open {@code file} positioned at the start of the line at byte {@code position}. */
+  public JsonRecordReader(File file, long position) {
+    try {
+      FileInputStream input = new FileInputStream(file);
+      input.skipNBytes(position);
+      reader =
+          new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public CassetteRecord next() {
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isBlank()) {
+          return MAPPER.readValue(line, CassetteRecord.class);
+        }
+      }
+      return null;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      reader.close();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.nordstrom.kafka.kcr.io.Sink;
+import com.nordstrom.kafka.kcr.io.SinkOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.apache.kafka.common.header.Header;
+
+/**
+ * Writes v2 JSON lines through one reused {@link JsonGenerator} straight into the sink. Produces
+ * the same text as serializing the {@link CassetteRecord} with an {@code ObjectMapper}, without the
+ * intermediate header map, hex and JSON strings per record: the value is hex encoded into a reused
+ * buffer, and ASCII keys and headers are written from their raw bytes.
+ */
+public class JsonRecordWriter implements CassetteRecordWriter {
+  private static final JsonFactory FACTORY =
+      JsonFactory.builder()
+          .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+          .disable(StreamWriteFeature.FLUSH_PASSED_TO_STREAM)
+          .build();
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final JsonGenerator generator;
+  private char[] hex = new char[256];
+
+  public JsonRecordWriter(Sink sink) {
+    try {
+      generator = FACTORY.createGenerator(new SinkOutputStream(sink));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    // Records are separated by the newline written after each one
+    generator.setRootValueSeparator(null);
+  }
+
+  @Override
+  public void write(CassetteRecord record) {
+    try {
+      generator.writeStartObject();
+      generator.writeFieldName("headers");
+      generator.writeStartObject();
+      for (Header header : record.getRawHeaders()) {
+        generator.writeFieldName(header.key());
+        writeText(header.value());
+      }
+      generator.writeEndObject();
+      generator.writeNumberField("timestamp", record.getTimestamp());
+      generator.writeNumberField("partition", record.getPartition());
+      generator.writeNumberField("offset", record.getOffset());
+      generator.writeFieldName("key");
+      writeText(record.getKeyBytes());
+      generator.writeFieldName("value");
+      writeHex(record.getValueBytes());
+      generator.writeEndObject();
+      generator.writeRaw('\n');
+      // Hand the record to the sink now, so its position reflects every record written
+      generator.flush();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Write UTF-8 bytes as a JSON string, or null. */
+  private void writeText(byte[] bytes) throws IOException {
+    if (bytes == null) {
+      generator.writeNull();
+    } else if (isAscii(bytes)) {
+      generator.writeUTF8String(bytes, 0, bytes.length);
+    } else {
+      // Decode, so malformed input is replaced exactly as the ObjectMapper path would
+      generator.writeString(new String(bytes, StandardCharsets.UTF_8));
+    }
+  }
+
+  private void writeHex(byte[] bytes) throws IOException {
+    if (bytes == null) {
+      generator.writeNull();
+      return;
+    }
+    int length = bytes.length * 2;
+    if (hex.length < length) {
+      hex = new char[Math.max(length, hex.length * 2)];
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      hex[2 * i] = HEX[(bytes[i] >> 4) & 0x0f];
+      hex[2 * i + 1] = HEX[bytes[i] & 0x0f];
+    }
+    generator.writeString(hex, 0, length);
+  }
+
+  private static boolean isAscii(byte[] bytes) {
+    for (byte b : bytes) {
+      if (b < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
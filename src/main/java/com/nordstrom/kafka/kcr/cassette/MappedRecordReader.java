@@ -0,0 +1,159 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads v3 cassette files through a sliding memory-mapped window, so files larger than memory are
+ * paged in by the OS rather than copied through stream buffers. Record boundaries are found from
+ * the length prefixes in the mapping and fields are decoded straight from it.
+ *
+ * <p>To keep playback allocation-light the reader returns the same {@link CassetteRecord} (and
+ * header list) on every call, so a record is only valid until the next call to {@link #next()}.
+ * Only the key and value arrays, which are handed on to the producer, and header values are
+ * allocated per record; header names repeated from the previous record reuse its strings.
+ */
+public class MappedRecordReader implements CassetteRecordReader {
+  private static final Logger log = LoggerFactory.getLogger(MappedRecordReader.class);
+  static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+  private final File file;
+  private final FileChannel channel;
+  private final long size;
+  private final long windowSize;
+  private final CassetteRecord record = new CassetteRecord();
+  private final List<Header> headers = new ArrayList<>();
+  private byte[][] headerKeyBytes = new byte[0][];
+  private String[] headerKeys = new String[0];
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long position;
+
+  public MappedRecordReader(File file) {
+    this(file, 0L);
+  }
+
+  /** Open {@code file} positioned at the record starting at byte {@code position}. */
+  public MappedRecordReader(File file, long position) {
+    this(file, position, WINDOW_SIZE);
+  }
+
+  MappedRecordReader(File file, long position, long windowSize) {
+    this.file = file;
+    this.windowSize = windowSize;
+    try {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      size = channel.size();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    this.position = Math.max(position, BinaryRecordCodec.MAGIC.length);
+    record.setRawHeaders(headers);
+  }
+
+  @Override
+  public CassetteRecord next() {
+    if (position + Integer.BYTES > size) {
+      return null;
+    }
+    map(position, Integer.BYTES);
+    int length = window.getInt((int) (position - windowStart));
+    if (position + Integer.BYTES + length > size) {
+      // A recorder that died mid-write leaves a partial record at the end of the file.
+      log.warn(".next: truncated record at end of {}", file);
+      position = size;
+      return null;
+    }
+    map(position, Integer.BYTES + length);
+
+    window.position((int) (position - windowStart) + Integer.BYTES);
+    record.setTimestamp(window.getLong());
+    record.setPartition(window.getInt());
+    record.setOffset(window.getLong());
+    record.setKeyBytes(bytes());
+    record.setValueBytes(bytes());
+
+    int count = window.getInt();
+    if (count > headerKeys.length) {
+      headerKeys = Arrays.copyOf(headerKeys, count);
+      headerKeyBytes = Arrays.copyOf(headerKeyBytes, count);
+    }
+    headers.clear();
+    for (int i = 0; i < count; i++) {
+      String key = headerKey(i);
+      headers.add(new RecordHeader(key, bytes()));
+    }
+
+    position += Integer.BYTES + length;
+    return record;
+  }
+
+  @Override
+  public void close() {
+    window = null;
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Make sure {@code [from, from + length)} lies inside the mapped window. */
+  private void map(long from, int length) {
+    if (window != null && from >= windowStart && from + length <= windowStart + window.limit()) {
+      return;
+    }
+    long mapSize = Math.min(size - from, Math.max(windowSize, length));
+    try {
+      window = channel.map(FileChannel.MapMode.READ_ONLY, from, mapSize);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    windowStart = from;
+  }
+
+  private byte[] bytes() {
+    int length = window.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    window.get(bytes);
+    return bytes;
+  }
+
+  private String headerKey(int i) {
+    int length = window.getInt();
+    byte[] last = headerKeyBytes[i];
+    int at = window.position();
+    if (last != null && last.length == length && matches(at, last)) {
+      window.position(at + length);
+      return headerKeys[i];
+    }
+    byte[] bytes = new byte[length];
+    window.get(bytes);
+    headerKeyBytes[i] = bytes;
+    headerKeys[i] = new String(bytes, StandardCharsets.UTF_8);
+    return headerKeys[i];
+  }
+
+  private boolean matches(int at, byte[] bytes) {
+    for (int j = 0; j < bytes.length; j++) {
+      if (window.get(at + j) != bytes[j]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,99 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToLongFunction;
+
+/**
+ * Streaming k-way merge of several partition readers by record timestamp, or by any other key the
+ * readers are ordered by. Only the current record of each reader is held, so memory stays constant
+ * per partition however long the files are. Records with equal keys come out in reader order.
+ *
+ * <p>Like the readers it merges, the returned record is only valid until the next call to {@link
+ * #next()}; {@link #source()} tells which reader it came from.
+ */
+public class MergedRecordReader implements CassetteRecordReader {
+  private final List<CassetteRecordReader> readers;
+  private final PriorityQueue<Head> heads;
+  private Head last;
+
+  public MergedRecordReader(List<? extends CassetteRecordReader> readers) {
+    this(readers, CassetteRecord::getTimestamp);
+  }
+
+  /**
+   * @param key the key every reader's records ascend by, such as the offset for readers of the
+   *     same topic-partition
+   */
+  public MergedRecordReader(
+      List<? extends CassetteRecordReader> readers, ToLongFunction<CassetteRecord> key) {
+    this.readers = new ArrayList<>(readers);
+    heads =
+        new PriorityQueue<>(
+            Math.max(1, readers.size()),
+            Comparator.comparingLong((Head h) -> key.applyAsLong(h.record))
+                .thenComparingInt(h -> h.source));
+    for (int i = 0; i < this.readers.size(); i++) {
+      advance(new Head(i));
+    }
+  }
+
+  @Override
+  public CassetteRecord next() {
+    // The previous record's reader is only advanced now, as advancing may overwrite that record.
+    if (last != null) {
+      advance(last);
+      last = null;
+    }
+    last = heads.poll();
+    return last == null ? null : last.record;
+  }
+
+  /**
+   * @return the index, in the list given to the constructor, of the reader that produced the last
+   *     record returned by {@link #next()}
+   */
+  public int source() {
+    if (last == null) {
+      throw new IllegalStateException("No current record");
+    }
+    return last.source;
+  }
+
+  @Override
+  public void close() {
+    RuntimeException failure = null;
+    for (CassetteRecordReader reader : readers) {
+      try {
+        reader.close();
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void advance(Head head) {
+    head.record = readers.get(head.source).next();
+    if (head.record != null) {
+      heads.add(head);
+    }
+  }
+
+  private static class Head {
+    private final int source;
+    private CassetteRecord record;
+
+    private Head(int source) {
+      this.source = source;
+    }
+  }
+}
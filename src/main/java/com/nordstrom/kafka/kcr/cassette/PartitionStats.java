@@ -0,0 +1,132 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Running statistics of one partition file, kept by the recorder and stored in the manifest so that
+ * a cassette can be summarized without reading its records.
+ */
+public class PartitionStats {
+  @JsonProperty("file")
+  private String file;
+
+  @JsonProperty("topic")
+  private String topic;
+
+  @JsonProperty("partition")
+  private int partition;
+
+  @JsonProperty("count")
+  private long count;
+
+  @JsonProperty("bytes")
+  private long bytes;
+
+  @JsonProperty("earliestTimestamp")
+  private long earliestTimestamp = Long.MAX_VALUE;
+
+  @JsonProperty("latestTimestamp")
+  private long latestTimestamp = Long.MIN_VALUE;
+
+  @JsonProperty("firstOffset")
+  private long firstOffset = -1;
+
+  @JsonProperty("lastOffset")
+  private long lastOffset = -1;
+
+  @JsonProperty("segments")
+  private List<SegmentStats> segments;
+
+  // Default constructor for Jackson
+  public PartitionStats() {}
+
+  public PartitionStats(String file, String topic, int partition) {
+    this.file = file;
+    this.topic = topic;
+    this.partition = partition;
+  }
+
+  /**
+   * Start accounting for a new segment of the partition; records are counted in the partition and
+   * in its latest segment.
+   */
+  public SegmentStats startSegment(String segmentFile) {
+    if (segments == null) {
+      segments = new ArrayList<>();
+    }
+    SegmentStats segment = new SegmentStats(segmentFile);
+    segments.add(segment);
+    return segment;
+  }
+
+  /** Account for a record of {@code size} bytes written to the partition file. */
+  public void update(long timestamp, long offset, int size) {
+    if (segments != null) {
+      segments.get(segments.size() - 1).update(timestamp, size);
+    }
+    if (count == 0) {
+      firstOffset = offset;
+    }
+    count++;
+    bytes += size;
+    lastOffset = offset;
+    if (timestamp < earliestTimestamp) {
+      earliestTimestamp = timestamp;
+    }
+    if (timestamp > latestTimestamp) {
+      latestTimestamp = timestamp;
+    }
+  }
+
+  @JsonIgnore
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  public String getFile() {
+    return file;
+  }
+
+  public String getTopic() {
+    return topic;
+  }
+
+  public int getPartition() {
+    return partition;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  public long getEarliestTimestamp() {
+    return earliestTimestamp;
+  }
+
+  public long getLatestTimestamp() {
+    return latestTimestamp;
+  }
+
+  public long getFirstOffset() {
+    return firstOffset;
+  }
+
+  public long getLastOffset() {
+    return lastOffset;
+  }
+
+  /**
+   * @return the segments of the partition in order, or {@code null} for manifests written before
+   *     partitions were segmented, when the partition is the single file {@link #getFile()}
+   */
+  public List<SegmentStats> getSegments() {
+    return segments;
+  }
+}
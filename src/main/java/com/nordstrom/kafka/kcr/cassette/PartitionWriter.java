@@ -0,0 +1,110 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import com.nordstrom.kafka.kcr.io.Sink;
+import com.nordstrom.kafka.kcr.io.SinkFactory;
+
+/**
+ * Appends records to one partition, keeping its index and statistics up to date. The partition is
+ * rolled over to a new numbered segment, with its own header and index, whenever the {@link
+ * SegmentPolicy} says so.
+ */
+public class PartitionWriter implements AutoCloseable {
+  private final SinkFactory sinkFactory;
+  private final String directory;
+  private final String partitionFile;
+  private final PartitionStats stats;
+  private final CassetteFormat format;
+  private final SegmentPolicy policy;
+  // Replaced by the writing thread on a roll while other threads may flush
+  private volatile Segment segment;
+
+  public PartitionWriter(
+      SinkFactory sinkFactory,
+      String directory,
+      String partitionFile,
+      PartitionStats stats,
+      CassetteFormat format,
+      SegmentPolicy policy) {
+    this.sinkFactory = sinkFactory;
+    this.directory = directory;
+    this.partitionFile = partitionFile;
+    this.stats = stats;
+    this.format = format;
+    this.policy = policy;
+    segment = openSegment(0);
+  }
+
+  /**
+   * @return number of bytes written for the record
+   */
+  public int write(CassetteRecord record) {
+    Segment current = segment;
+    if (policy.shouldRoll(current.stats, record.getTimestamp())) {
+      current.close();
+      current = openSegment(current.number + 1);
+      segment = current;
+    }
+    long position = current.sink.position();
+    current.index.append(record.getTimestamp(), record.getOffset(), position);
+    current.writer.write(record);
+    int size = (int) (current.sink.position() - position);
+    stats.update(record.getTimestamp(), record.getOffset(), size);
+    return size;
+  }
+
+  private Segment openSegment(int number) {
+    String name = Cassette.segmentFileName(partitionFile, number);
+    Sink sink = sinkFactory.create(directory, name);
+    format.writeHeader(sink);
+    Sink index = sinkFactory.create(directory, CassetteIndex.fileName(name));
+    return new Segment(
+        number,
+        sink,
+        new CassetteIndexWriter(index),
+        format.openWriter(sink),
+        stats.startSegment(name));
+  }
+
+  /**
+   * @return the sink of the segment being written
+   */
+  public Sink getSink() {
+    return segment.sink;
+  }
+
+  public PartitionStats getStats() {
+    return stats;
+  }
+
+  public CassetteFormat getFormat() {
+    return format;
+  }
+
+  public void flush() {
+    Segment current = segment;
+    current.writer.flush();
+    current.sink.flush();
+    current.index.flush();
+  }
+
+  @Override
+  public void close() {
+    segment.close();
+  }
+
+  private record Segment(
+      int number,
+      Sink sink,
+      CassetteIndexWriter index,
+      CassetteRecordWriter writer,
+      SegmentStats stats) {
+    void close() {
+      try {
+        writer.flush();
+        sink.close();
+      } finally {
+        index.close();
+      }
+    }
+  }
+}
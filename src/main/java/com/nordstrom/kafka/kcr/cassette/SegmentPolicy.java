@@ -0,0 +1,59 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import java.time.Duration;
+
+/**
+ * Controls when a partition file is rolled over to a new segment: once the current segment holds
+ * {@code maxBytes}, or once its records span {@code maxAge} of record time, whichever comes first.
+ * A limit of {@code 0} is never reached, so {@link #NONE} keeps every partition in one file.
+ */
+public class SegmentPolicy {
+  public static final SegmentPolicy NONE = new SegmentPolicy(0L, Duration.ZERO);
+
+  private final long maxBytes;
+  private final Duration maxAge;
+
+  public SegmentPolicy(long maxBytes, Duration maxAge) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("Segment size must be >= 0");
+    }
+    if (maxAge == null || maxAge.isNegative()) {
+      throw new IllegalArgumentException("Segment age must be >= 0");
+    }
+
+    this.maxBytes = maxBytes;
+    this.maxAge = maxAge;
+  }
+
+  /**
+   * @return {@link #NONE} if neither limit is set, so callers can tell that segmenting is off
+   */
+  public static SegmentPolicy of(long maxBytes, Duration maxAge) {
+    SegmentPolicy policy = new SegmentPolicy(maxBytes, maxAge);
+    return policy.isNone() ? NONE : policy;
+  }
+
+  /** Whether neither limit is set, so every partition stays in one file. */
+  public boolean isNone() {
+    return maxBytes == 0 && maxAge.isZero();
+  }
+
+  /** Whether a record with {@code timestamp} belongs in a new segment after {@code current}. */
+  boolean shouldRoll(SegmentStats current, long timestamp) {
+    if (current.isEmpty()) {
+      return false;
+    }
+    if (maxBytes > 0 && current.getBytes() >= maxBytes) {
+      return true;
+    }
+    return !maxAge.isZero() && timestamp - current.getEarliestTimestamp() >= maxAge.toMillis();
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public Duration getMaxAge() {
+    return maxAge;
+  }
+}
@@ -0,0 +1,68 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Statistics of one segment of a partition file, stored in the manifest so that playback can skip
+ * segments outside its time window without opening them.
+ */
+public class SegmentStats {
+  @JsonProperty("file")
+  private String file;
+
+  @JsonProperty("count")
+  private long count;
+
+  @JsonProperty("bytes")
+  private long bytes;
+
+  @JsonProperty("earliestTimestamp")
+  private long earliestTimestamp = Long.MAX_VALUE;
+
+  @JsonProperty("latestTimestamp")
+  private long latestTimestamp = Long.MIN_VALUE;
+
+  // Default constructor for Jackson
+  public SegmentStats() {}
+
+  public SegmentStats(String file) {
+    this.file = file;
+  }
+
+  void update(long timestamp, int size) {
+    count++;
+    bytes += size;
+    if (timestamp < earliestTimestamp) {
+      earliestTimestamp = timestamp;
+    }
+    if (timestamp > latestTimestamp) {
+      latestTimestamp = timestamp;
+    }
+  }
+
+  @JsonIgnore
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  public String getFile() {
+    return file;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  public long getEarliestTimestamp() {
+    return earliestTimestamp;
+  }
+
+  public long getLatestTimestamp() {
+    return latestTimestamp;
+  }
+}
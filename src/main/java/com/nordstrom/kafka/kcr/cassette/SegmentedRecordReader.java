@@ -0,0 +1,106 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads the segments of a partition one after another as a single stream. Each segment is opened
+ * in whichever format it was written and, when playback starts part way through the cassette,
+ * positioned through its own index. While one segment is read the next is already being opened in
+ * the background, so crossing a segment boundary does not stall on detecting its format and
+ * loading its index.
+ */
+public class SegmentedRecordReader implements CassetteRecordReader {
+  private static final Executor PREFETCH = Executors.newVirtualThreadPerTaskExecutor();
+
+  private final List<File> segments;
+  private final long fromTimestamp;
+  private CassetteRecordReader current;
+  private CompletableFuture<CassetteRecordReader> prefetched;
+  private int next;
+
+  public SegmentedRecordReader(List<File> segments) {
+    this(segments, Long.MIN_VALUE);
+  }
+
+  /**
+   * @param segments the segment files to read, in order
+   * @param fromTimestamp seek every segment to where records from this time may start
+   */
+  public SegmentedRecordReader(List<File> segments, long fromTimestamp) {
+    this.segments = List.copyOf(segments);
+    this.fromTimestamp = fromTimestamp;
+    prefetch();
+  }
+
+  @Override
+  public CassetteRecord next() {
+    while (true) {
+      if (current == null) {
+        if (prefetched == null) {
+          return null;
+        }
+        current = take();
+        prefetch();
+      }
+      CassetteRecord record = current.next();
+      if (record != null) {
+        return record;
+      }
+      current.close();
+      current = null;
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      if (current != null) {
+        current.close();
+        current = null;
+      }
+    } finally {
+      if (prefetched != null) {
+        // Close the next segment once it is open rather than wait for it
+        prefetched.thenAccept(CassetteRecordReader::close);
+        prefetched = null;
+      }
+    }
+  }
+
+  private void prefetch() {
+    if (next >= segments.size()) {
+      prefetched = null;
+      return;
+    }
+    File segment = segments.get(next++);
+    prefetched = CompletableFuture.supplyAsync(() -> open(segment, fromTimestamp), PREFETCH);
+  }
+
+  private CassetteRecordReader take() {
+    try {
+      return prefetched.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  /** Open a segment file, seeking to {@code fromTimestamp} when it has an index. */
+  public static CassetteRecordReader open(File segment, long fromTimestamp) {
+    long position = 0L;
+    if (fromTimestamp != Long.MIN_VALUE) {
+      CassetteIndex index = CassetteIndex.load(segment);
+      if (index != null) {
+        position = index.positionForTimestamp(fromTimestamp);
+      }
+    }
+    return CassetteFormat.open(segment, position);
+  }
+}
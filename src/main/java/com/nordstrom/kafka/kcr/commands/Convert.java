@@ -0,0 +1,145 @@
+package com.nordstrom.kafka.kcr.commands;
+
+import com.nordstrom.kafka.kcr.Kcr;
+import com.nordstrom.kafka.kcr.cassette.Cassette;
+import com.nordstrom.kafka.kcr.cassette.CassetteConverter;
+import com.nordstrom.kafka.kcr.cassette.CassetteFormat;
+import com.nordstrom.kafka.kcr.cassette.CassetteRecord;
+import com.nordstrom.kafka.kcr.cassette.SegmentPolicy;
+import com.nordstrom.kafka.kcr.facilities.TimeSpec;
+import com.nordstrom.kafka.kcr.io.FileSinkFactory;
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+@Command(
+    name = "convert",
+    description = "Stream a cassette into a new one in another format, layout or size.")
+public class Convert implements Runnable {
+  private static final String DEFAULT_CASSETTE_DIR = "kcr";
+
+  @Option(
+      names = {"--cassette"},
+      description = "Kafka Cassette Recorder directory to convert (REQUIRED)",
+      required = true)
+  private String cassette;
+
+  @Option(
+      names = {"--data-directory"},
+      description =
+          "Data directory to write the converted cassette to (default=${DEFAULT-VALUE})",
+      defaultValue = DEFAULT_CASSETTE_DIR)
+  private String dataDirectory;
+
+  @Option(
+      names = {"--format"},
+      description =
+          "Cassette record format: ${COMPLETION-CANDIDATES} (default=${DEFAULT-VALUE})",
+      defaultValue = "COMPRESSED")
+  private CassetteFormat format;
+
+  @Option(
+      names = {"--segment-bytes"},
+      description =
+          "Roll each partition file over to a new segment once it holds this many bytes, 0 = never"
+              + " (default=${DEFAULT-VALUE})",
+      defaultValue = "0")
+  private long segmentBytes;
+
+  @Option(
+      names = {"--segment-duration"},
+      description =
+          "Roll each partition file over to a new segment once its records span this much time,"
+              + " e.g. 1h or 30m")
+  private String segmentDuration;
+
+  @Option(
+      names = {"--drop"},
+      description =
+          "Drop fields from every record, comma separated: key, value, headers or header:<name>",
+      split = ",")
+  private List<String> drop = new ArrayList<>();
+
+  @Option(
+      names = {"--threads"},
+      description =
+          "Number of partitions converted at once; 0 = one per available core"
+              + " (default=${DEFAULT-VALUE})",
+      defaultValue = "0")
+  private int threads;
+
+  @Override
+  public void run() {
+    File source = new File(cassette);
+    if (!source.isDirectory()) {
+      System.err.println("--cassette " + cassette + " is empty or invalid");
+      System.exit(1);
+    }
+    if (threads < 0) {
+      System.err.println("Error: --threads must be >= 0");
+      System.exit(1);
+    }
+
+    SegmentPolicy segmentPolicy = SegmentPolicy.NONE;
+    UnaryOperator<CassetteRecord> transform = UnaryOperator.identity();
+    try {
+      Duration segmentAge =
+          segmentDuration == null || segmentDuration.isBlank()
+              ? Duration.ZERO
+              : TimeSpec.parseDuration(segmentDuration);
+      segmentPolicy = SegmentPolicy.of(segmentBytes, segmentAge);
+      transform = CassetteConverter.dropping(drop);
+    } catch (IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(1);
+    }
+    int numberThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+    System.out.println("kcr.convert.cassette: " + cassette);
+    System.out.println("kcr.convert.format  : " + format);
+    System.out.println("kcr.convert.threads : " + numberThreads);
+    if (!drop.isEmpty()) {
+      System.out.println("kcr.convert.drop    : " + String.join(",", drop));
+    }
+
+    Instant start = Instant.now();
+    CassetteConverter converter =
+        new CassetteConverter(
+            source,
+            new FileSinkFactory(),
+            format,
+            segmentPolicy,
+            transform,
+            numberThreads);
+    Cassette converted = converter.convert(dataDirectory, Kcr.getId());
+
+    long before = size(source);
+    long after = size(new File(converted.getCassetteDir()));
+    System.out.println("kcr.convert.output  : " + converted.getCassetteDir());
+    System.out.println("kcr.convert.records : " + converter.getRecords());
+    System.out.println(
+        "kcr.convert.bytes   : "
+            + before
+            + " -> "
+            + after
+            + String.format(" (%.1f%%)", before == 0 ? 0.0 : 100.0 * after / before));
+    System.out.println("kcr.convert.runtime : " + Duration.between(start, Instant.now()));
+  }
+
+  /** Total size of the files in a cassette directory. */
+  private static long size(File directory) {
+    File[] files = directory.listFiles();
+    long size = 0L;
+    if (files != null) {
+      for (File file : files) {
+        size += file.length();
+      }
+    }
+    return size;
+  }
+}
@@ -0,0 +1,84 @@
+package com.nordstrom.kafka.kcr.commands;
+
+import com.nordstrom.kafka.kcr.Kcr;
+import com.nordstrom.kafka.kcr.cassette.Cassette;
+import com.nordstrom.kafka.kcr.cassette.CassetteFormat;
+import com.nordstrom.kafka.kcr.cassette.CassetteMerger;
+import com.nordstrom.kafka.kcr.io.FileSinkFactory;
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+@Command(
+    name = "merge",
+    description = "Merge several cassettes into one, in log order and without duplicates.")
+public class Merge implements Runnable {
+  private static final String DEFAULT_CASSETTE_DIR = "kcr";
+
+  @Option(
+      names = {"--cassette"},
+      description = "Kafka Cassette Recorder directory to merge, repeat for each (REQUIRED)",
+      required = true)
+  private List<String> cassettes = new ArrayList<>();
+
+  @Option(
+      names = {"--data-directory"},
+      description = "Data directory to write the merged cassette to (default=${DEFAULT-VALUE})",
+      defaultValue = DEFAULT_CASSETTE_DIR)
+  private String dataDirectory;
+
+  @Option(
+      names = {"--format"},
+      description =
+          "Cassette record format: ${COMPLETION-CANDIDATES} (default=${DEFAULT-VALUE})",
+      defaultValue = "BINARY")
+  private CassetteFormat format;
+
+  @Option(
+      names = {"--threads"},
+      description =
+          "Number of partitions merged at once; 0 = one per available core"
+              + " (default=${DEFAULT-VALUE})",
+      defaultValue = "0")
+  private int threads;
+
+  @Override
+  public void run() {
+    if (cassettes.size() < 2) {
+      System.err.println("Error: --cassette must be given at least twice");
+      System.exit(1);
+    }
+    List<File> sources = new ArrayList<>();
+    for (String cassette : cassettes) {
+      File source = new File(cassette);
+      if (!source.isDirectory()) {
+        System.err.println("--cassette " + cassette + " is empty or invalid");
+        System.exit(1);
+      }
+      sources.add(source);
+    }
+    if (threads < 0) {
+      System.err.println("Error: --threads must be >= 0");
+      System.exit(1);
+    }
+    int numberThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+    System.out.println("kcr.merge.cassettes : " + String.join(",", cassettes));
+    System.out.println("kcr.merge.format    : " + format);
+    System.out.println("kcr.merge.threads   : " + numberThreads);
+
+    Instant start = Instant.now();
+    CassetteMerger merger =
+        new CassetteMerger(sources, new FileSinkFactory(), format, numberThreads);
+    Cassette merged = merger.merge(dataDirectory, Kcr.getId());
+
+    System.out.println("kcr.merge.output    : " + merged.getCassetteDir());
+    System.out.println("kcr.merge.records   : " + merger.getRecords());
+    System.out.println("kcr.merge.duplicates: " + merger.getDuplicates());
+    System.out.println("kcr.merge.runtime   : " + Duration.between(start, Instant.now()));
+  }
+}
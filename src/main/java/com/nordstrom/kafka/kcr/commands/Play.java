@@ -1,53 +1,68 @@
 package com.nordstrom.kafka.kcr.commands;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nordstrom.kafka.kcr.Kcr;
+import com.nordstrom.kafka.kcr.cassette.Cassette;
+import com.nordstrom.kafka.kcr.cassette.CassetteArena;
 import com.nordstrom.kafka.kcr.cassette.CassetteInfo;
+import com.nordstrom.kafka.kcr.cassette.CassetteReader;
 import com.nordstrom.kafka.kcr.cassette.CassetteRecord;
+import com.nordstrom.kafka.kcr.cassette.CassetteRecordReader;
+import com.nordstrom.kafka.kcr.cassette.MergedRecordReader;
+import com.nordstrom.kafka.kcr.facilities.Pacer;
+import com.nordstrom.kafka.kcr.facilities.PacingScheduler;
+import com.nordstrom.kafka.kcr.facilities.RateProfile;
+import com.nordstrom.kafka.kcr.facilities.TimeSpec;
+import com.nordstrom.kafka.kcr.facilities.TokenBucket;
+import com.nordstrom.kafka.kcr.kafka.Amplifier;
+import com.nordstrom.kafka.kcr.kafka.InFlightWindow;
 import com.nordstrom.kafka.kcr.kafka.KafkaAdminClient;
+import com.nordstrom.kafka.kcr.kafka.PartitionSkew;
+import com.nordstrom.kafka.kcr.kafka.ProducerPool;
+import com.nordstrom.kafka.kcr.kafka.Repartitioner;
 import com.nordstrom.kafka.kcr.metrics.JmxConfigPlay;
 import com.nordstrom.kafka.kcr.metrics.JmxNameMapper;
+import com.nordstrom.kafka.kcr.metrics.MetricsOptions;
 import io.micrometer.core.instrument.Clock;
-import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import io.micrometer.jmx.JmxMeterRegistry;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
-import org.apache.commons.codec.DecoderException;
-import org.apache.commons.codec.binary.Hex;
-import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.ParentCommand;
 import sun.misc.Signal;
 
-@Command(name = "play", description = "Playback a cassette to a Kafka topic.")
+@Command(name = "play", description = "Playback a cassette to one or more Kafka topics.")
 public class Play implements Runnable {
   private static final Logger log = LoggerFactory.getLogger(Play.class);
   private static final Pattern DURATION_PATTERN = Pattern.compile("(\\d.*)h(\\d.*)m(\\d.*)s");
 
   @ParentCommand private Kcr parent;
 
+  @Mixin private MetricsOptions metrics = new MetricsOptions();
+
   @Option(
       names = {"--cassette"},
       description = "Kafka Cassette Recorder directory for playback (REQUIRED)",
@@ -63,10 +78,19 @@ public class Play implements Runnable {
 
   @Option(
       names = {"--topic"},
-      description = "Kafka topic to write (REQUIRED)",
-      required = true)
+      description =
+          "Kafka topic to write every recorded topic to that --topic-map does not map (REQUIRED"
+              + " unless --topic-map maps every recorded topic)")
   private String topic;
 
+  @Option(
+      names = {"--topic-map"},
+      description =
+          "Write recorded topics to other topics: comma separated <recorded>=<target> pairs, e.g."
+              + " orders=orders-replay,payments=payments-replay",
+      split = ",")
+  private Map<String, String> topicMap = new HashMap<>();
+
   @Option(
       names = {"--producer-config"},
       description =
@@ -93,14 +117,126 @@ public class Play implements Runnable {
       description = "Kafka duration for playback, format must be like **h**m**s")
   private String duration;
 
+  @Option(
+      names = {"--max-in-flight"},
+      description =
+          "Maximum unacknowledged sends per partition file (default=${DEFAULT-VALUE})",
+      defaultValue = "1000")
+  private int maxInFlight;
+
+  @Option(
+      names = {"--from"},
+      description =
+          "Start playback at this time: ISO-8601 instant, epoch millis, +<duration> after the"
+              + " cassette start or -<duration> before its end (e.g. -10m)")
+  private String from;
+
+  @Option(
+      names = {"--to"},
+      description = "Stop playback at this time, in the same formats as --from")
+  private String to;
+
+  @Option(
+      names = {"--ordering"},
+      description =
+          "PARTITION plays each partition file on its own thread; GLOBAL merges all partition"
+              + " files by timestamp and plays them in one globally ordered stream"
+              + " (default=${DEFAULT-VALUE})",
+      defaultValue = "PARTITION")
+  private Ordering ordering;
+
+  @Option(
+      names = {"--spin-us"},
+      description =
+          "Spin instead of parking for the last microseconds before each send, for sub-millisecond"
+              + " pacing accuracy; 0 never spins (default=100 with GLOBAL ordering, which plays on"
+              + " its own platform thread, and 0 with PARTITION ordering, whose virtual threads"
+              + " would hold up the threads carrying them while they spin)")
+  private Long spinMicros;
+
+  @Option(
+      names = {"--rate-profile"},
+      description =
+          "Vary the playback rate over the whole session, across runs, overriding"
+              + " --playback-rate: comma separated <rate>[-<rate>]:<duration> stages, where rates"
+              + " are multipliers (2x) or records per second across all partitions (50000/s), e.g."
+              + " 1x-10x:30m or"
+              + " 10000/s:5m,20000/s:5m,40000/s")
+  private String rateProfileSpec;
+
+  @Option(
+      names = {"--partitioning"},
+      description =
+          "How records are spread over the target partitions: MODULO sends each recorded partition"
+              + " to its number modulo the target's partition count, KEY_HASH hashes the recorded"
+              + " key as Kafka's default partitioner does, ROUND_ROBIN sends to every partition in"
+              + " turn (default=${DEFAULT-VALUE})",
+      defaultValue = "MODULO")
+  private Repartitioner.Strategy partitioning;
+
+  @Option(
+      names = {"--amplify"},
+      description =
+          "Send this many copies of every record, spread over the gap since the previous record;"
+              + " all but one copy get their key suffixed with #<n> (default=${DEFAULT-VALUE})",
+      defaultValue = "1")
+  private int amplify;
+
+  @Option(
+      names = {"--producers"},
+      description =
+          "Number of producers to send with, each sending to its own share of the target"
+              + " partitions (default=${DEFAULT-VALUE})",
+      defaultValue = "1")
+  private int numberOfProducers;
+
+  @Option(
+      names = {"--preload-mb"},
+      description =
+          "Decode the cassette once into off-heap memory and replay every run from there, using at"
+              + " most this many MiB; larger cassettes are streamed from disk, as with 0"
+              + " (default=${DEFAULT-VALUE})",
+      defaultValue = "0")
+  private long preloadMegabytes;
+
+  /** How records of different partition files are ordered against each other during playback. */
+  public enum Ordering {
+    PARTITION,
+    GLOBAL
+  }
+
   private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
   private final Instant start = new Date().toInstant();
-  private int numberPartitions = 0;
+  private final Map<String, Target> targets = new HashMap<>();
+  private final Map<String, PartitionSkew> skews = new TreeMap<>();
+  private CassetteReader reader;
+  private boolean multiTopic;
+  private CassetteArena arena;
+  private Instant windowStart;
+  private long windowStartMillis = Long.MIN_VALUE;
+  private long windowEndMillis = Long.MAX_VALUE;
   private AtomicLong metricElapsedMillis;
+  private Timer metricScheduleLag;
+  private RateProfile rateProfile;
+  private volatile Pacer pacer;
+  // Rate profiles run over the whole session, across runs
+  private long sessionStartNanos;
 
   public Play() {
     registry.add(new JmxMeterRegistry(new JmxConfigPlay(), Clock.SYSTEM, new JmxNameMapper()));
     metricElapsedMillis = registry.gauge("elapsed-ms", new AtomicLong(0));
+    metricScheduleLag =
+        Timer.builder("schedule.lag")
+            .description("Actual minus intended send time of played records")
+            .publishPercentileHistogram()
+            .register(registry);
+    registry.gauge(
+        "playback.rate",
+        this,
+        play -> {
+          Pacer current = play.pacer;
+          return current == null ? 0.0 : current.currentRate();
+        });
   }
 
   @Override
@@ -125,10 +261,45 @@ public class Play implements Runnable {
       System.exit(1);
     }
 
+    if ((topic == null || topic.isBlank()) && topicMap.isEmpty()) {
+      System.err.println("Error: --topic or --topic-map is required");
+      System.exit(1);
+    }
+
+    try {
+      metrics.attach(registry);
+    } catch (RuntimeException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(1);
+    }
+
     Properties opts = parent.getOpts();
     System.out.println("kcr.play.id      : " + opts.get("kcr.id"));
+    if (metrics.getMetricsPort() > 0) {
+      String url = "http://localhost:" + metrics.getMetricsPort() + "/metrics";
+      System.out.println("kcr.play.metrics : " + url);
+    }
     System.out.println("kcr.play.topic   : " + topic);
-    System.out.println("kcr.play.playback-rate: " + playbackRate);
+    if (!topicMap.isEmpty()) {
+      System.out.println("kcr.play.topic-map: " + topicMap);
+    }
+    if (rateProfileSpec != null && !rateProfileSpec.isBlank()) {
+      try {
+        rateProfile = RateProfile.parse(rateProfileSpec);
+      } catch (IllegalArgumentException e) {
+        System.err.println("Error: --rate-profile " + e.getMessage());
+        System.exit(1);
+      }
+      System.out.println("kcr.play.rate-profile: " + rateProfile);
+    } else {
+      System.out.println("kcr.play.playback-rate: " + playbackRate);
+    }
+    System.out.println("kcr.play.ordering: " + ordering);
+    System.out.println("kcr.play.producers: " + numberOfProducers);
+    System.out.println("kcr.play.partitioning: " + partitioning);
+    if (amplify > 1) {
+      System.out.println("kcr.play.amplify : " + amplify + "x");
+    }
 
     Timer.Sample metricDurationTimer = Timer.start();
 
@@ -137,9 +308,7 @@ public class Play implements Runnable {
     cleanOpts.putAll(opts);
     cleanOpts.remove("kcr.id");
 
-    // Describe topic to get number of partitions of playback topic.
     KafkaAdminClient admin = new KafkaAdminClient(cleanOpts);
-    numberPartitions = admin.numberPartitions(topic);
 
     // Read cassette info
     CassetteInfo cinfo = new CassetteInfo(cassette);
@@ -152,6 +321,50 @@ public class Play implements Runnable {
       return;
     }
 
+    // Restrict playback to a window of the cassette
+    windowStart = cinfo.getEarliest();
+    try {
+      if (from != null && !from.isBlank()) {
+        windowStart = TimeSpec.resolve(from, cinfo.getEarliest(), cinfo.getLatest());
+        windowStartMillis = windowStart.toEpochMilli();
+      }
+      if (to != null && !to.isBlank()) {
+        windowEndMillis =
+            TimeSpec.resolve(to, cinfo.getEarliest(), cinfo.getLatest()).toEpochMilli();
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(1);
+    }
+    if (spinMicros == null) {
+      spinMicros =
+          ordering == Ordering.GLOBAL
+              ? TimeUnit.NANOSECONDS.toMicros(PacingScheduler.DEFAULT_SPIN_NANOS)
+              : 0L;
+    } else if (spinMicros < 0) {
+      System.err.println("Error: --spin-us must be >= 0");
+      System.exit(1);
+    }
+    if (amplify < 1) {
+      System.err.println("Error: --amplify must be >= 1");
+      System.exit(1);
+    }
+    if (numberOfProducers < 1) {
+      System.err.println("Error: --producers must be >= 1");
+      System.exit(1);
+    }
+    if (windowEndMillis < windowStartMillis) {
+      System.err.println("Error: --to must not be before --from");
+      System.exit(1);
+    }
+    System.out.println(
+        "kcr.play.window : "
+            + windowStart
+            + " - "
+            + (windowEndMillis == Long.MAX_VALUE
+                ? cinfo.getLatest()
+                : Instant.ofEpochMilli(windowEndMillis)));
+
     // Handle ctrl-c
     Signal.handle(
         new Signal("INT"),
@@ -164,7 +377,15 @@ public class Play implements Runnable {
     Properties producerOpts = new Properties();
     producerOpts.put("key.serializer", ByteArraySerializer.class.getCanonicalName());
     producerOpts.put("value.serializer", ByteArraySerializer.class.getCanonicalName());
-    producerOpts.put("client.id", "kcr-" + topic + "-cid-" + opts.get("kcr.id") + "}");
+    String clientTopic =
+        topic != null && !topic.isBlank() ? topic : topicMap.values().iterator().next();
+    producerOpts.put("client.id", "kcr-" + clientTopic + "-cid-" + opts.get("kcr.id") + "}");
+    // Sends are pipelined, so retries must not reorder records within a partition.
+    producerOpts.put("enable.idempotence", "true");
+    if (playbackRate == 0.0 && rateProfile == null) {
+      producerOpts.putAll(ProducerPool.THROUGHPUT);
+      System.out.println("kcr.play.producer-profile: throughput " + ProducerPool.THROUGHPUT);
+    }
 
     if (producerConfig != null && !producerConfig.isEmpty()) {
       try (FileInputStream insProducerConfig = new FileInputStream(producerConfig)) {
@@ -176,21 +397,49 @@ public class Play implements Runnable {
       }
     }
     producerOpts.putAll(cleanOpts);
-    KafkaProducer<byte[], byte[]> client = new KafkaProducer<>(producerOpts);
+    ProducerPool producers = new ProducerPool(producerOpts, numberOfProducers, registry);
 
-    String[] filelist = cassetteDir.list();
-    if (filelist == null) {
+    try {
+      reader = new CassetteReader(cassetteDir, windowStartMillis, windowEndMillis);
+    } catch (IllegalArgumentException e) {
       System.err.println("Cannot read cassette directory");
       System.exit(1);
     }
+    String[] filelist = reader.getPartitionFiles().toArray(String[]::new);
+
+    // Describe the target of every recorded topic to get the number of partitions to play to.
+    for (String fileName : filelist) {
+      String recorded = Cassette.topicOf(fileName);
+      if (targets.containsKey(recorded)) {
+        continue;
+      }
+      String target = topicMap.getOrDefault(recorded, topic);
+      if (target == null || target.isBlank()) {
+        System.err.println("Error: no target topic for recorded topic " + recorded);
+        System.exit(1);
+      }
+      int partitions = admin.numberPartitions(target);
+      PartitionSkew skew =
+          skews.computeIfAbsent(target, t -> new PartitionSkew(target, partitions));
+      targets.put(recorded, new Target(target, partitions, skew));
+      System.out.println("kcr.play.target  : " + recorded + " -> " + target);
+    }
+    multiTopic = targets.size() > 1;
+
+    if (preloadMegabytes > 0) {
+      preload(filelist, preloadMegabytes * 1024 * 1024);
+    }
 
     Instant startKcr = new Date().toInstant();
+    sessionStartNanos = System.nanoTime();
 
     if (hasDuration) {
-      runWithDuration(cinfo, client, filelist);
+      runWithDuration(producers, filelist);
     } else {
-      runWithCount(cinfo, client, filelist, hasNumOfRuns);
+      runWithCount(producers, filelist, hasNumOfRuns);
     }
+    producers.close();
+    skews.values().forEach(skew -> System.out.println("kcr.play.skew    : " + skew.summary()));
 
     System.out.println("kcr.play.runtime : " + Duration.between(startKcr, new Date().toInstant()));
     metricDurationTimer.stop(registry.timer("duration-ms"));
@@ -208,8 +457,7 @@ public class Play implements Runnable {
     }
   }
 
-  private void runWithDuration(
-      CassetteInfo cinfo, KafkaProducer<byte[], byte[]> client, String[] filelist) {
+  private void runWithDuration(ProducerPool producers, String[] filelist) {
     String[] parts = duration.split("h|m|s");
     long timeLeftMillis =
         (long)
@@ -224,24 +472,7 @@ public class Play implements Runnable {
       long runStart = System.currentTimeMillis();
 
       try {
-        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
-        long offsetNanos = ChronoUnit.NANOS.between(cinfo.getEarliest(), new Date().toInstant());
-
-        for (String fileName : filelist) {
-          if (!fileName.contains("manifest")) {
-            log.trace(".run:file={}", fileName);
-            executor.submit(
-                () -> {
-                  try {
-                    processFile(fileName, client, offsetNanos);
-                  } catch (Exception e) {
-                    log.error("Error processing file", e);
-                  }
-                });
-          }
-        }
-
-        executor.shutdown();
+        ExecutorService executor = startRun(producers, filelist);
         long timeout = Math.max(1, timeLeftMillis);
         if (!executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
           executor.shutdownNow();
@@ -257,34 +488,13 @@ public class Play implements Runnable {
     }
   }
 
-  private void runWithCount(
-      CassetteInfo cinfo,
-      KafkaProducer<byte[], byte[]> client,
-      String[] filelist,
-      boolean hasNumOfRuns) {
+  private void runWithCount(ProducerPool producers, String[] filelist, boolean hasNumOfRuns) {
     int iRuns = 0;
     int maxRuns = hasNumOfRuns && numberOfPlays != null ? Integer.parseInt(numberOfPlays) : 1;
 
     while (shouldContinueWithCount(iRuns, hasNumOfRuns, maxRuns)) {
       try {
-        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
-        long offsetNanos = ChronoUnit.NANOS.between(cinfo.getEarliest(), new Date().toInstant());
-
-        for (String fileName : filelist) {
-          if (!fileName.contains("manifest")) {
-            log.trace(".run:file={}", fileName);
-            executor.submit(
-                () -> {
-                  try {
-                    processFile(fileName, client, offsetNanos);
-                  } catch (Exception e) {
-                    log.error("Error processing file", e);
-                  }
-                });
-          }
-        }
-
-        executor.shutdown();
+        ExecutorService executor = startRun(producers, filelist);
         executor.awaitTermination(1, TimeUnit.HOURS);
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
@@ -294,73 +504,219 @@ public class Play implements Runnable {
     }
   }
 
-  private void processFile(
-      String fileName, KafkaProducer<byte[], byte[]> client, long offsetNanos) {
-    String partitionNumber = fileName.substring(fileName.lastIndexOf("-") + 1);
+  /**
+   * Start one playback of the cassette; the returned executor has been shut down, so awaiting its
+   * termination waits for the run to finish.
+   */
+  private ExecutorService startRun(ProducerPool producers, String[] filelist) {
+    // The merged stream gets a platform thread of its own, where spinning holds up nothing else
+    ExecutorService executor =
+        ordering == Ordering.GLOBAL
+            ? Executors.newSingleThreadExecutor()
+            : Executors.newVirtualThreadPerTaskExecutor();
+    long spinNanos = TimeUnit.MICROSECONDS.toNanos(spinMicros);
+    Pacer scheduler;
+    if (rateProfile == null) {
+      scheduler = new PacingScheduler(windowStart.toEpochMilli(), playbackRate, spinNanos);
+    } else if (rateProfile.isAbsolute()) {
+      // One bucket for every partition and every run, so the rate is the total across them and
+      // the profile carries on from one run to the next
+      scheduler =
+          pacer instanceof TokenBucket bucket
+              ? bucket
+              : new TokenBucket(rateProfile, TokenBucket.DEFAULT_BURST, spinNanos);
+    } else {
+      scheduler =
+          new PacingScheduler(
+              windowStart.toEpochMilli(),
+              rateProfile,
+              spinNanos,
+              System.nanoTime() - sessionStartNanos);
+    }
+    pacer = scheduler;
+
+    if (ordering == Ordering.GLOBAL) {
+      log.trace(".run:merge={}", filelist.length);
+      executor.submit(
+          () -> {
+            try {
+              processMerged(filelist, producers, scheduler);
+            } catch (Exception e) {
+              log.error("Error processing cassette", e);
+            }
+          });
+    } else {
+      for (String fileName : filelist) {
+        log.trace(".run:file={}", fileName);
+        executor.submit(
+            () -> {
+              try {
+                processFile(fileName, producers, scheduler);
+              } catch (Exception e) {
+                log.error("Error processing file", e);
+              }
+            });
+      }
+    }
+
+    executor.shutdown();
+    return executor;
+  }
+
+  private void processFile(String fileName, ProducerPool producers, Pacer scheduler) {
+    String partitionTag = partitionTag(fileName);
+    Target target = targets.get(Cassette.topicOf(fileName));
     Timer.Sample metricDurationTimer = Timer.start();
-    Counter metricSend = registry.counter("send.total", "partition", partitionNumber);
-    Counter metricSendTotal = registry.counter("send.total");
-    ObjectMapper mapper = new ObjectMapper();
-
-    try (BufferedReader reader = new BufferedReader(new FileReader(new File(cassette, fileName)))) {
-      String line;
-      while ((line = reader.readLine()) != null) {
-        CassetteRecord record = mapper.readValue(line, CassetteRecord.class);
-        play(client, record, offsetNanos);
-        metricSend.increment();
-        metricSendTotal.increment();
+    Repartitioner repartitioner = repartitioner(fileName);
+    Amplifier amplifier = new Amplifier(amplify);
+    InFlightWindow window = new InFlightWindow(producers, maxInFlight, partitionTag, registry);
+
+    try (CassetteRecordReader reader = openReader(fileName)) {
+      CassetteRecord record;
+      while ((record = reader.next()) != null) {
+        if (record.getTimestamp() < windowStartMillis) {
+          continue;
+        }
+        if (record.getTimestamp() > windowEndMillis) {
+          // Timestamps within a partition are treated as ascending for the end of the window
+          break;
+        }
+        play(window, target, repartitioner, amplifier, record, scheduler);
         updateElapsed();
       }
-    } catch (IOException e) {
+      window.drain();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
       log.error("Error reading cassette file", e);
     }
 
-    metricDurationTimer.stop(registry.timer("duration-ms", "partition", partitionNumber));
+    metricDurationTimer.stop(registry.timer("duration-ms", "partition", partitionTag));
   }
 
-  private void play(KafkaProducer<byte[], byte[]> client, CassetteRecord record, long offsetNanos) {
-    Instant ts = new Date(record.getTimestamp()).toInstant();
-    Instant now = new Date().toInstant();
-    Instant whenToSend = ts.plusNanos(offsetNanos);
-    Duration wait = Duration.between(now, whenToSend);
-
-    long millis = playbackRate > 0.0 ? (long) (wait.toMillis() / playbackRate) : 0L;
+  /**
+   * Play every partition file from one thread, merged by timestamp, so records are sent in global
+   * timestamp order. Each file still gets its own in-flight window.
+   */
+  private void processMerged(String[] filelist, ProducerPool producers, Pacer scheduler) {
+    Timer.Sample metricDurationTimer = Timer.start();
+    List<InFlightWindow> windows = new ArrayList<>();
+    List<Target> fileTargets = new ArrayList<>();
+    List<Repartitioner> repartitioners = new ArrayList<>();
+    // One amplifier for the merged stream, so copies stay in timestamp order across files
+    Amplifier amplifier = new Amplifier(amplify);
+    List<CassetteRecordReader> readers = new ArrayList<>();
 
-    if (millis > 0) {
-      try {
-        Thread.sleep(millis);
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
+    try {
+      for (String fileName : filelist) {
+        windows.add(new InFlightWindow(producers, maxInFlight, partitionTag(fileName), registry));
+        fileTargets.add(targets.get(Cassette.topicOf(fileName)));
+        repartitioners.add(repartitioner(fileName));
+        readers.add(openReader(fileName));
       }
+    } catch (RuntimeException e) {
+      readers.forEach(CassetteRecordReader::close);
+      throw e;
     }
 
-    int partitionToUse = mapPartition(record.getPartition(), numberPartitions);
-    byte[] key = record.getKey() != null ? record.getKey().getBytes() : null;
-    byte[] value;
-    try {
-      value = Hex.decodeHex(record.getValue());
-    } catch (DecoderException e) {
-      log.error("Error decoding hex value", e);
-      return;
+    try (MergedRecordReader reader = new MergedRecordReader(readers)) {
+      CassetteRecord record;
+      while ((record = reader.next()) != null) {
+        if (record.getTimestamp() < windowStartMillis) {
+          continue;
+        }
+        if (record.getTimestamp() > windowEndMillis) {
+          // Later records of every partition are past the window too
+          break;
+        }
+        int source = reader.source();
+        play(
+            windows.get(source),
+            fileTargets.get(source),
+            repartitioners.get(source),
+            amplifier,
+            record,
+            scheduler);
+        updateElapsed();
+      }
+      for (InFlightWindow window : windows) {
+        window.drain();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      log.error("Error reading cassette file", e);
     }
 
-    ProducerRecord<byte[], byte[]> producerRecord =
-        new ProducerRecord<>(topic, partitionToUse, key, value);
+    metricDurationTimer.stop(registry.timer("duration-ms", "partition", "all"));
+  }
 
-    for (Map.Entry<String, String> header : record.getHeaders().entrySet()) {
-      producerRecord.headers().add(header.getKey(), header.getValue().getBytes());
+  private void preload(String[] filelist, long maxBytes) {
+    Map<String, List<File>> files = new HashMap<>();
+    for (String fileName : filelist) {
+      files.put(fileName, reader.segmentFiles(fileName));
     }
+    arena = CassetteArena.load(files, windowStartMillis, windowEndMillis, maxBytes);
+    if (arena == null) {
+      System.out.println("kcr.play.preload : over " + maxBytes + " bytes, streaming from disk");
+    } else {
+      System.out.println(
+          "kcr.play.preload : "
+              + arena.getRecords()
+              + " records in "
+              + arena.getBytes()
+              + " bytes");
+    }
+  }
 
-    try {
-      client.send(producerRecord).get();
-    } catch (Exception e) {
-      System.err.println(
-          "ERROR during send: partition="
-              + record.getPartition()
-              + ", key="
-              + record.getKey()
-              + ", exception="
-              + e);
+  /** Open a partition as one stream, from the preloaded arena if there is one. */
+  private CassetteRecordReader openReader(String partitionFile) {
+    if (arena != null) {
+      return arena.open(partitionFile);
+    }
+    return reader.open(partitionFile);
+  }
+
+  /** A new repartitioner for one run of a partition file. */
+  private Repartitioner repartitioner(String fileName) {
+    Target target = targets.get(Cassette.topicOf(fileName));
+    return new Repartitioner(partitioning, target.partitions(), Cassette.partitionOf(fileName));
+  }
+
+  /** Tag for per-file metrics: the partition, qualified by its topic when there are several. */
+  private String partitionTag(String fileName) {
+    return multiTopic ? fileName : String.valueOf(Cassette.partitionOf(fileName));
+  }
+
+  private void play(
+      InFlightWindow window,
+      Target target,
+      Repartitioner repartitioner,
+      Amplifier amplifier,
+      CassetteRecord record,
+      Pacer scheduler)
+      throws InterruptedException {
+    amplifier.next(record.getTimestamp());
+    for (int copy = 0; copy < amplifier.copies(); copy++) {
+      long lagNanos = scheduler.await(amplifier.timestamp(copy));
+      if (rateProfile != null || playbackRate > 0.0) {
+        metricScheduleLag.record(lagNanos, TimeUnit.NANOSECONDS);
+      }
+
+      // Salted copies are shifted off the record's own partition when the key does not decide it
+      byte[] key = amplifier.key(record.getKeyBytes(), copy);
+      int partitionToUse =
+          repartitioner.partition(record.getPartition() + amplifier.salt(copy), key);
+      target.skew().increment(partitionToUse);
+      ProducerRecord<byte[], byte[]> producerRecord =
+          new ProducerRecord<>(
+              target.topic(),
+              partitionToUse,
+              key,
+              record.getValueBytes(),
+              record.getRawHeaders());
+
+      window.send(producerRecord);
     }
   }
 
@@ -385,7 +741,6 @@ public class Play implements Runnable {
     return false;
   }
 
-  private int mapPartition(int partition, int numberPartitions) {
-    return partition % numberPartitions;
-  }
+  /** The topic a recorded topic is played to, its number of partitions and how they are loaded. */
+  private record Target(String topic, int partitions, PartitionSkew skew) {}
 }
@@ -2,14 +2,21 @@ package com.nordstrom.kafka.kcr.commands;
 
 import com.nordstrom.kafka.kcr.Kcr;
 import com.nordstrom.kafka.kcr.cassette.Cassette;
+import com.nordstrom.kafka.kcr.cassette.CassetteFormat;
 import com.nordstrom.kafka.kcr.cassette.CassetteInfo;
+import com.nordstrom.kafka.kcr.cassette.PartitionWriter;
+import com.nordstrom.kafka.kcr.cassette.SegmentPolicy;
+import com.nordstrom.kafka.kcr.facilities.TimeSpec;
 import com.nordstrom.kafka.kcr.io.FileSinkFactory;
-import com.nordstrom.kafka.kcr.io.Sink;
+import com.nordstrom.kafka.kcr.io.FlushPolicy;
 import com.nordstrom.kafka.kcr.io.Source;
 import com.nordstrom.kafka.kcr.kafka.KafkaAdminClient;
 import com.nordstrom.kafka.kcr.kafka.KafkaSourceFactory;
+import com.nordstrom.kafka.kcr.kafka.OffsetBound;
+import com.nordstrom.kafka.kcr.kafka.RecordFilter;
 import com.nordstrom.kafka.kcr.metrics.JmxConfigRecord;
 import com.nordstrom.kafka.kcr.metrics.JmxNameMapper;
+import com.nordstrom.kafka.kcr.metrics.MetricsOptions;
 import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
@@ -18,21 +25,29 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.ParentCommand;
 import sun.misc.Signal;
 
-@Command(name = "record", description = "Record a Kafka topic to a cassette.")
+@Command(name = "record", description = "Record one or more Kafka topics to a cassette.")
 public class Record implements Runnable {
   private static final Logger log = LoggerFactory.getLogger(Record.class);
   private static final String DEFAULT_CASSETTE_DIR = "kcr";
@@ -40,6 +55,8 @@ public class Record implements Runnable {
 
   @ParentCommand private Kcr parent;
 
+  @Mixin private MetricsOptions metrics = new MetricsOptions();
+
   @Option(
       names = {"--data-directory"},
       description =
@@ -54,9 +71,14 @@ public class Record implements Runnable {
 
   @Option(
       names = {"--topic"},
-      description = "Kafka topic to record (REQUIRED)",
-      required = true)
-  private String topic;
+      description = "Kafka topic(s) to record, comma separated (REQUIRED unless --topic-regex)",
+      split = ",")
+  private List<String> topicNames;
+
+  @Option(
+      names = {"--topic-regex"},
+      description = "Record every topic whose whole name matches this regular expression")
+  private String topicRegex;
 
   @Option(
       names = {"--duration"},
@@ -75,8 +97,111 @@ public class Record implements Runnable {
           "Optional Kafka Consumer configuration file. OVERWRITES any command-line values.")
   private String consumerConfig;
 
+  @Option(
+      names = {"--format"},
+      description =
+          "Cassette record format: ${COMPLETION-CANDIDATES} (default=${DEFAULT-VALUE})",
+      defaultValue = "BINARY")
+  private CassetteFormat format;
+
+  @Option(
+      names = {"--flush-bytes"},
+      description =
+          "Bytes buffered per partition file before they are written out (default=${DEFAULT-VALUE})",
+      defaultValue = "" + FlushPolicy.DEFAULT_FLUSH_BYTES)
+  private int flushBytes;
+
+  @Option(
+      names = {"--flush-interval-ms"},
+      description =
+          "Maximum time buffered records wait before they are written out, 0 = write every record (default=${DEFAULT-VALUE})",
+      defaultValue = "1000")
+  private long flushIntervalMs;
+
+  @Option(
+      names = {"--fsync"},
+      description = "Force every flush through to the storage device")
+  private boolean fsync;
+
+  @Option(
+      names = {"--segment-bytes"},
+      description =
+          "Roll each partition file over to a new segment once it holds this many bytes, 0 = never"
+              + " (default=${DEFAULT-VALUE})",
+      defaultValue = "0")
+  private long segmentBytes;
+
+  @Option(
+      names = {"--segment-duration"},
+      description =
+          "Roll each partition file over to a new segment once its records span this much time,"
+              + " e.g. 1h or 30m")
+  private String segmentDuration;
+
+  @Option(
+      names = {"--from"},
+      description =
+          "Record retained history from this time instead of live traffic: earliest, ISO-8601"
+              + " instant, epoch millis or -<duration> before now (e.g. -1h)")
+  private String from;
+
+  @Option(
+      names = {"--to"},
+      description =
+          "Stop recording each partition at this time, or at its current end offset with 'end',"
+              + " and exit once every partition is done; a time no record has reached yet records"
+              + " until one does or it passes")
+  private String to;
+
+  @Option(
+      names = {"--from-offset"},
+      description =
+          "Record from this offset of every partition, or from comma separated"
+              + " <partition>=<offset> or <topic>-<partition>=<offset> offsets")
+  private String fromOffset;
+
+  @Option(
+      names = {"--to-offset"},
+      description =
+          "Stop recording each partition before this offset, in the same formats as --from-offset,"
+              + " and exit once every partition is done")
+  private String toOffset;
+
+  @Option(
+      names = {"--filter"},
+      description =
+          "Record only records that pass this rule; repeat for several rules, all of which must"
+              + " pass: key=<regex>, header:<name>=<regex>, header:<name>, min-value-bytes=<n> or"
+              + " max-value-bytes=<n>")
+  private List<String> filterRules = new ArrayList<>();
+
+  @Option(
+      names = {"--sample-keys"},
+      description =
+          "Record the records of one key in this many, chosen by key hash, keeping every record"
+              + " of a chosen key (default=${DEFAULT-VALUE})",
+      defaultValue = "1")
+  private int sampleKeys;
+
+  @Option(
+      names = {"--consumers"},
+      description =
+          "Number of Kafka consumers sharing the topics' partitions, each writing its partitions'"
+              + " files; 0 = one per available core (default=${DEFAULT-VALUE})",
+      defaultValue = "0")
+  private int consumers;
+
+  @Option(
+      names = {"--write-queue"},
+      description =
+          "Records of a partition that may be polled but not yet written before fetching it is"
+              + " paused until the writer catches up (default=${DEFAULT-VALUE})",
+      defaultValue = "10000")
+  private int writeQueue;
+
   private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
   private final Instant start = new Date().toInstant();
+  private final List<Recorder> recorders = new ArrayList<>();
 
   public Record() {
     registry.add(new JmxMeterRegistry(new JmxConfigRecord(), Clock.SYSTEM, new JmxNameMapper()));
@@ -92,14 +217,103 @@ public class Record implements Runnable {
       System.exit(1);
     }
 
+    if (consumers < 0) {
+      System.err.println("'consumers' must be >= 0");
+      System.exit(1);
+    }
+
+    if (writeQueue <= 0) {
+      System.err.println("'write-queue' must be > 0");
+      System.exit(1);
+    }
+
+    SegmentPolicy segmentPolicy = SegmentPolicy.NONE;
+    try {
+      Duration segmentAge =
+          segmentDuration == null || segmentDuration.isBlank()
+              ? Duration.ZERO
+              : TimeSpec.parseDuration(segmentDuration);
+      segmentPolicy = SegmentPolicy.of(segmentBytes, segmentAge);
+    } catch (IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(1);
+    }
+
+    OffsetBound fromBound = null;
+    OffsetBound toBound = null;
+    if (present(from) && present(fromOffset)) {
+      System.err.println("Error: --from cannot be used with --from-offset");
+      System.exit(1);
+    }
+    if (present(to) && present(toOffset)) {
+      System.err.println("Error: --to cannot be used with --to-offset");
+      System.exit(1);
+    }
+    try {
+      Instant now = Instant.now();
+      if (present(from)) {
+        fromBound = OffsetBound.parseTime(from, now);
+      } else if (present(fromOffset)) {
+        fromBound = OffsetBound.parseOffsets(fromOffset);
+      }
+      if (present(to)) {
+        toBound = OffsetBound.parseTime(to, now);
+      } else if (present(toOffset)) {
+        toBound = OffsetBound.parseOffsets(toOffset);
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(1);
+    }
+
+    List<RecordFilter.Rule> rules = new ArrayList<>();
+    try {
+      for (String rule : filterRules) {
+        rules.add(RecordFilter.parse(rule));
+      }
+      if (sampleKeys != 1) {
+        rules.add(RecordFilter.sampleKeys(sampleKeys));
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(1);
+    }
+    RecordFilter filter = new RecordFilter(rules);
+
     if (groupId != null && groupId.isEmpty()) {
       System.err.println("'group-id' value cannot be empty or null");
       System.exit(1);
     }
 
+    boolean hasTopics = topicNames != null && !topicNames.isEmpty();
+    boolean hasRegex = topicRegex != null && !topicRegex.isEmpty();
+    if (hasTopics == hasRegex) {
+      System.err.println("Exactly one of 'topic' or 'topic-regex' is required");
+      System.exit(1);
+    }
+    Pattern topicPattern = null;
+    if (hasRegex) {
+      try {
+        topicPattern = Pattern.compile(topicRegex);
+      } catch (PatternSyntaxException e) {
+        System.err.println("'topic-regex' is not a valid regular expression: " + e.getMessage());
+        System.exit(1);
+      }
+    }
+
+    try {
+      metrics.attach(registry);
+    } catch (RuntimeException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(1);
+    }
+
     Properties opts = parent.getOpts();
     System.out.println("kcr.record.id              : " + opts.get("kcr.id"));
-    System.out.println("kcr.record.topic           : " + topic);
+    if (metrics.getMetricsPort() > 0) {
+      String url = "http://localhost:" + metrics.getMetricsPort() + "/metrics";
+      System.out.println("kcr.record.metrics         : " + url);
+    }
 
     Timer.Sample metricDurationTimer = Timer.start();
 
@@ -119,38 +333,97 @@ public class Record implements Runnable {
       }
     }
 
-    // Describe topic to get number of partitions to record.
+    // Resolve the topics and describe them to get the number of partitions to record.
     KafkaAdminClient admin = new KafkaAdminClient(cleanOpts);
-    int numberPartitions = admin.numberPartitions(topic);
+    List<String> names;
+    if (topicPattern != null) {
+      Pattern pattern = topicPattern;
+      names =
+          admin.listTopics().stream().filter(t -> pattern.matcher(t).matches()).sorted().toList();
+      if (names.isEmpty()) {
+        System.err.println("No topic matches 'topic-regex' " + topicRegex);
+        System.exit(1);
+      }
+    } else {
+      names = topicNames.stream().map(String::trim).distinct().toList();
+    }
+    Map<String, Integer> topics = new LinkedHashMap<>();
+    for (String name : names) {
+      topics.put(name, admin.numberPartitions(name));
+    }
+    int numberPartitions = topics.values().stream().mapToInt(Integer::intValue).sum();
+    System.out.println("kcr.record.topic           : " + String.join(",", topics.keySet()));
     System.out.println("kcr.record.topic.partitions: " + numberPartitions);
     System.out.println("kcr.record.duration        : " + duration);
     System.out.println("kcr.header.timestamp       : " + timestampHeaderName);
+    System.out.println("kcr.record.format          : " + format);
+    if (fromBound != null || toBound != null) {
+      System.out.println("kcr.record.from            : " + (present(from) ? from : fromOffset));
+      System.out.println("kcr.record.to              : " + (present(to) ? to : toOffset));
+    }
+    if (!filter.isEmpty()) {
+      System.out.println("kcr.record.filter          : " + filter.getRules());
+    }
+    if (!segmentPolicy.isNone()) {
+      System.out.println(
+          "kcr.record.segment        : "
+              + segmentPolicy.getMaxBytes()
+              + " bytes, "
+              + segmentPolicy.getMaxAge());
+    }
+    int numberConsumers =
+        Math.min(
+            numberPartitions,
+            consumers > 0 ? consumers : Runtime.getRuntime().availableProcessors());
+    System.out.println("kcr.record.consumers       : " + numberConsumers);
+    System.out.println("kcr.record.write-queue     : " + writeQueue);
 
     // Create a cassette and start recording topic messages
-    FileSinkFactory sinkFactory = new FileSinkFactory();
+    FlushPolicy flushPolicy =
+        new FlushPolicy(flushBytes, Duration.ofMillis(flushIntervalMs), fsync);
+    FileSinkFactory sinkFactory = new FileSinkFactory(flushPolicy);
     KafkaSourceFactory sourceFactory =
-        new KafkaSourceFactory(cleanOpts, topic, groupId, Kcr.getId());
+        new KafkaSourceFactory(cleanOpts, Cassette.label(names), groupId, Kcr.getId());
     Cassette cassette =
-        new Cassette(dataDirectory, topic, numberPartitions, sourceFactory, sinkFactory);
-    cassette.create(String.valueOf(opts.get("kcr.id")));
+        new Cassette(dataDirectory, topics, sourceFactory, sinkFactory, format, segmentPolicy);
+    cassette.create(String.valueOf(opts.get("kcr.id")), numberConsumers);
 
-    // Launch a Recorder thread for each partition using Virtual Threads
+    // Launch a Recorder thread for each consumer using Virtual Threads
     ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
 
-    for (int partitionNumber = 0; partitionNumber < numberPartitions; partitionNumber++) {
-      Source source = cassette.getSources().get(partitionNumber);
-      Sink sink = cassette.getSinks().get(partitionNumber);
-      Recorder recorder = new Recorder(source, sink, timestampHeaderName);
-      int finalPartitionNumber = partitionNumber;
+    for (int i = 0; i < cassette.getSources().size(); i++) {
+      Source source = cassette.getSources().get(i);
+      List<TopicPartition> partitions = cassette.getSourcePartitions().get(i);
+      Map<TopicPartition, PartitionWriter> writers = new HashMap<>();
+      for (TopicPartition partition : partitions) {
+        writers.put(partition, cassette.getWriter(partition.topic(), partition.partition()));
+      }
+      Recorder recorder =
+          new Recorder(
+              source,
+              writers,
+              timestampHeaderName,
+              topics.size() > 1,
+              fromBound,
+              toBound,
+              filter,
+              writeQueue);
+      recorders.add(recorder);
+      String threadName = "kcr-recorder-" + partitions.get(0);
 
       executor.submit(
           () -> {
-            Thread.currentThread().setName("kcr-recorder-" + finalPartitionNumber);
-            recorder.record(finalPartitionNumber, registry);
+            Thread.currentThread().setName(threadName);
+            recorder.record(registry);
           });
     }
 
+    // Recorders with a --to bound finish on their own
+    executor.shutdown();
+    boolean bounded = toBound != null;
+
     // Handle duration if specified
+    long deadline = Long.MAX_VALUE;
     if (hasDuration) {
       String[] parts = duration.split("h|m|s");
       long numDuration =
@@ -158,17 +431,7 @@ public class Record implements Runnable {
               ((Double.parseDouble(parts[0]) * 3600000)
                   + (Double.parseDouble(parts[1]) * 60000)
                   + (Double.parseDouble(parts[2]) * 1000));
-      try {
-        Thread.sleep(numDuration);
-        executor.shutdownNow();
-        executor.awaitTermination(5, TimeUnit.SECONDS);
-        metricDurationTimer.stop(registry.timer("duration-ms"));
-        CassetteInfo info = new CassetteInfo(cassette.getCassetteDir());
-        System.out.println(info.summary());
-        System.exit(0);
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-      }
+      deadline = System.currentTimeMillis() + numDuration;
     }
 
     // Handle ctrl-c
@@ -176,18 +439,27 @@ public class Record implements Runnable {
     Signal.handle(
         new Signal("INT"),
         sig -> {
-          metricDurationTimer.stop(registry.timer("duration-ms"));
-          CassetteInfo info = new CassetteInfo(cassette.getCassetteDir());
-          System.out.println(info.summary());
+          stop(executor, cassette, metricDurationTimer);
           System.exit(0);
         });
 
-    // Update elapsed time metric whilst waiting for ctrl-c
+    // Update elapsed time metric whilst waiting for ctrl-c, the duration or the end bound,
+    // flushing partitions that have gone quiet so their buffered records are not held back
+    // indefinitely.
     AtomicLong metricElapsedMillis = registry.gauge("elapsed-ms", new AtomicLong(0));
+    long lastFlush = System.currentTimeMillis();
     while (true) {
+      if (System.currentTimeMillis() >= deadline || (bounded && executor.isTerminated())) {
+        stop(executor, cassette, metricDurationTimer);
+        System.exit(0);
+      }
       if (metricElapsedMillis != null) {
         metricElapsedMillis.set(Duration.between(start, new Date().toInstant()).toMillis());
       }
+      if (System.currentTimeMillis() - lastFlush >= flushIntervalMs) {
+        cassette.flush();
+        lastFlush = System.currentTimeMillis();
+      }
       try {
         Thread.sleep(500L);
       } catch (InterruptedException e) {
@@ -196,4 +468,31 @@ public class Record implements Runnable {
       }
     }
   }
+
+  private static boolean present(String option) {
+    return option != null && !option.isBlank();
+  }
+
+  private void stop(ExecutorService executor, Cassette cassette, Timer.Sample metricDurationTimer) {
+    // Interrupting the recorders would close the file channels they write through
+    recorders.forEach(Recorder::stop);
+    executor.shutdown();
+    // Recorders write everything they have queued before finishing, which on a slow disk takes as
+    // long as it takes; closing the cassette under them would lose those records.
+    try {
+      while (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+        log.warn(".stop: waiting for recorders to write the records they have polled");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.error(".stop: interrupted before recorders finished, cassette left open and incomplete");
+      System.err.println("Recording interrupted before all records were written");
+      return;
+    }
+    // Recorders are stopped; nothing buffered may be lost.
+    cassette.close();
+    metricDurationTimer.stop(registry.timer("duration-ms"));
+    CassetteInfo info = new CassetteInfo(cassette.getCassetteDir());
+    System.out.println(info.summary());
+  }
 }
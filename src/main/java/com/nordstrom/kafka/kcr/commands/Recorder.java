@@ -1,100 +1,458 @@
 package com.nordstrom.kafka.kcr.commands;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nordstrom.kafka.kcr.cassette.CassetteRecord;
-import com.nordstrom.kafka.kcr.io.Sink;
+import com.nordstrom.kafka.kcr.cassette.PartitionWriter;
 import com.nordstrom.kafka.kcr.io.Source;
 import com.nordstrom.kafka.kcr.kafka.KafkaSource;
+import com.nordstrom.kafka.kcr.kafka.OffsetBound;
+import com.nordstrom.kafka.kcr.kafka.RecordFilter;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
-import java.nio.charset.Charset;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import org.apache.commons.codec.binary.Hex;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.errors.WakeupException;
 import org.apache.kafka.common.record.TimestampType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Polls one source and writes each polled batch to the writers of the partitions it came from. A
+ * source may read any number of partitions of any number of topics, so one recorder can serve a
+ * share of a cassette.
+ *
+ * <p>By default a recorder captures live traffic until it is interrupted. Given bounds it instead
+ * starts each partition at its {@code from} offset and stops once every partition has been read up
+ * to its {@code to} offset, so retained history is recorded as fast as the brokers serve it. A
+ * partition whose {@code to} time no record has reached yet is recorded live until a record reaches
+ * it, or until the time passes, when it stops at its end offset.
+ *
+ * <p>A {@link RecordFilter} drops unwanted records as they are polled, counting the records each
+ * rule drops.
+ *
+ * <p>Polling and writing run on separate threads joined by a queue, so a slow disk does not stall
+ * the consumer and a slow fetch does not leave the disk idle. The writer takes everything queued at
+ * once and writes it batch by batch. Once a partition has {@code queueRecords} records polled but
+ * not yet written its fetching is paused, and resumed when the writer has drained it to half that,
+ * so memory stays bounded; the queue may overshoot by one poll's worth of records.
+ */
 public class Recorder {
   private static final Logger log = LoggerFactory.getLogger(Recorder.class);
+  public static final int DEFAULT_QUEUE_RECORDS = 10_000;
+  private static final Batch END = new Batch(null, List.of(), 0L);
+  private static final Duration POLL_TIMEOUT = Duration.ofSeconds(20);
+  private static final Duration PAUSED_POLL_TIMEOUT = Duration.ofMillis(100);
 
   private final Source source;
-  private final Sink sink;
+  private final Map<TopicPartition, PartitionWriter> writers;
   private final String timestampHeaderName;
+  private final boolean multiTopic;
+  private final OffsetBound from;
+  private final OffsetBound to;
+  private final RecordFilter filter;
+  private final int queueRecords;
+  private volatile boolean stopped;
 
-  public Recorder(Source source, Sink sink, String timestampHeaderName) {
+  /**
+   * @param writers the writer of every partition read by {@code source}
+   * @param multiTopic whether the cassette holds several topics, so that per-partition metrics are
+   *     tagged with the topic as well as the partition
+   */
+  public Recorder(
+      Source source,
+      Map<TopicPartition, PartitionWriter> writers,
+      String timestampHeaderName,
+      boolean multiTopic) {
+    this(
+        source,
+        writers,
+        timestampHeaderName,
+        multiTopic,
+        null,
+        null,
+        RecordFilter.ALL,
+        DEFAULT_QUEUE_RECORDS);
+  }
+
+  /**
+   * @param from where to start each partition, {@code null} for the latest offset
+   * @param to where to stop each partition, exclusive, {@code null} to record until interrupted
+   * @param filter which polled records to record
+   * @param queueRecords records of a partition that may wait to be written before its fetching is
+   *     paused
+   */
+  public Recorder(
+      Source source,
+      Map<TopicPartition, PartitionWriter> writers,
+      String timestampHeaderName,
+      boolean multiTopic,
+      OffsetBound from,
+      OffsetBound to,
+      RecordFilter filter,
+      int queueRecords) {
+    if (queueRecords <= 0) {
+      throw new IllegalArgumentException("Write queue must hold at least 1 record");
+    }
     this.source = source;
-    this.sink = sink;
+    this.writers = Map.copyOf(writers);
     this.timestampHeaderName = timestampHeaderName;
+    this.multiTopic = multiTopic;
+    this.from = from;
+    this.to = to;
+    this.filter = filter;
+    this.queueRecords = queueRecords;
   }
 
-  public void record(int partitionNumber, MeterRegistry registry) {
-    Counter metricWriteTotal = registry.counter("write.total");
-    Counter metricWrite =
-        registry.counter("write.total", "partition", String.valueOf(partitionNumber));
+  public void record(MeterRegistry registry) {
+    Meters metricTotal =
+        new Meters(registry.counter("write.total"), registry.counter("write.bytes"));
+    Map<TopicPartition, Meters> metricPartition = new HashMap<>();
+    Map<TopicPartition, AtomicLong> queued = new HashMap<>();
+    Map<TopicPartition, Timer> metricPaused = new HashMap<>();
+    for (TopicPartition partition : writers.keySet()) {
+      String tag = multiTopic ? partition.toString() : String.valueOf(partition.partition());
+      metricPartition.put(
+          partition,
+          new Meters(
+              registry.counter("write.total", "partition", tag),
+              registry.counter("write.bytes", "partition", tag)));
+      queued.put(
+          partition,
+          registry.gauge("write.queue.depth", Tags.of("partition", tag), new AtomicLong()));
+      metricPaused.put(partition, registry.timer("poll.paused", "partition", tag));
+    }
+    Timer metricLatency =
+        Timer.builder("write.latency")
+            .description("Time from polling a batch of records to having written them")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .publishPercentileHistogram()
+            .register(registry);
+    Counter metricDroppedTotal = registry.counter("filter.dropped");
+    Map<RecordFilter.Rule, Counter> metricDropped = new HashMap<>();
+    for (RecordFilter.Rule rule : filter.getRules()) {
+      metricDropped.put(rule, registry.counter("filter.dropped", "rule", rule.name()));
+    }
 
     if (source instanceof KafkaSource kafkaSource) {
       kafkaSource.assign();
-      ObjectMapper mapper = new ObjectMapper();
-
-      while (true) {
-        ConsumerRecords<byte[], byte[]> records = kafkaSource.poll(Duration.ofSeconds(20));
-        for (ConsumerRecord<byte[], byte[]> it : records) {
-          // The record does not always have a key so we need to test for that explicitly.
-          String k = null;
-          if (it.key() != null && it.key().length > 0) {
-            k = new String(it.key(), Charset.defaultCharset());
-          }
+      if (from != null) {
+        kafkaSource.seek(kafkaSource.offsetsFor(from, true));
+      }
+      // Partitions paused because too many of their records are queued, with when they were paused
+      Map<TopicPartition, Long> paused = new HashMap<>();
+      Map<TopicPartition, Long> endOffsets = null;
+      Map<TopicPartition, Long> unfinished = null;
+      // Partitions whose stop time no record has reached yet
+      Set<TopicPartition> open = new HashSet<>();
+      if (to != null) {
+        endOffsets = new HashMap<>(kafkaSource.offsetsFor(to, false));
+        endOffsets.forEach(
+            (partition, offset) -> {
+              if (offset == OffsetBound.OPEN) {
+                open.add(partition);
+              }
+            });
+        unfinished = new HashMap<>(endOffsets);
+        if (finished(kafkaSource, unfinished, paused, metricPaused)) {
+          return;
+        }
+      }
 
-          long timestamp;
-          if (it.timestampType() == TimestampType.NO_TIMESTAMP_TYPE || it.timestampType() == null) {
-            timestamp = Instant.now().toEpochMilli();
-          } else {
-            timestamp = it.timestamp();
+      BlockingQueue<Batch> queue = new LinkedBlockingQueue<>();
+      Thread writerThread =
+          Thread.ofVirtual()
+              .name(Thread.currentThread().getName() + "-writer")
+              .start(() -> writeAll(queue, queued, metricPartition, metricTotal, metricLatency));
+      try {
+        while (!stopped && !Thread.currentThread().isInterrupted()) {
+          resumeDrained(kafkaSource, paused, queued, metricPaused);
+          ConsumerRecords<byte[], byte[]> records;
+          try {
+            // A paused partition is resumed between polls, so do not wait long for the others
+            records = kafkaSource.poll(paused.isEmpty() ? POLL_TIMEOUT : PAUSED_POLL_TIMEOUT);
+          } catch (InterruptException e) {
+            log.trace(".record.interrupted: p={}", writers.keySet());
+            break;
           }
-
-          Map<String, String> headers = new HashMap<>();
-          for (Header header : it.headers()) {
-            headers.put(header.key(), new String(header.value()));
+          long polled = System.nanoTime();
+          for (TopicPartition partition : records.partitions()) {
+            if (!writers.containsKey(partition)) {
+              log.warn(".record: no writer for partition {}", partition);
+              continue;
+            }
+            List<ConsumerRecord<byte[], byte[]>> batch = records.records(partition);
+            if (open.contains(partition) && to instanceof OffsetBound.AtTime(Instant time)) {
+              long reached = reached(batch, time.toEpochMilli());
+              if (reached != OffsetBound.OPEN) {
+                open.remove(partition);
+                endOffsets.put(partition, reached);
+                unfinished.put(partition, reached);
+              }
+            }
+            if (endOffsets != null) {
+              batch = before(batch, endOffsets.getOrDefault(partition, Long.MAX_VALUE));
+            }
+            if (!filter.isEmpty()) {
+              batch = kept(batch, metricDropped, metricDroppedTotal);
+            }
+            if (batch.isEmpty()) {
+              continue;
+            }
+            long depth = queued.get(partition).addAndGet(batch.size());
+            queue.add(new Batch(partition, batch, polled));
+            if (depth >= queueRecords && !paused.containsKey(partition)) {
+              kafkaSource.pause(List.of(partition));
+              paused.put(partition, System.nanoTime());
+              log.debug(".record.paused: p={}, queued={}", partition, depth);
+            }
+          }
+          if (!open.isEmpty()
+              && to instanceof OffsetBound.AtTime(Instant time)
+              && !time.isAfter(Instant.now())) {
+            // The time has passed without a record reaching it, so the bound is the end offset
+            Map<TopicPartition, Long> passed = kafkaSource.offsetsFor(to, false);
+            for (TopicPartition partition : List.copyOf(open)) {
+              long offset = passed.get(partition);
+              if (offset != OffsetBound.OPEN) {
+                open.remove(partition);
+                endOffsets.put(partition, offset);
+                unfinished.put(partition, offset);
+              }
+            }
+          }
+          if (unfinished != null && finished(kafkaSource, unfinished, paused, metricPaused)) {
+            break;
+          }
+        }
+      } catch (WakeupException e) {
+        log.trace(".record.stopped: p={}", writers.keySet());
+      } finally {
+        // Whatever has been polled is written before returning, even when interrupted
+        boolean interrupted = Thread.interrupted();
+        queue.add(END);
+        while (writerThread.isAlive()) {
+          try {
+            writerThread.join();
+          } catch (InterruptedException e) {
+            interrupted = true;
           }
+        }
+        long now = System.nanoTime();
+        paused.forEach(
+            (partition, since) ->
+                metricPaused.get(partition).record(now - since, TimeUnit.NANOSECONDS));
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  /**
+   * Stop recording without interrupting the recording thread, whose file writes an interrupt would
+   * abort. {@link #record(MeterRegistry)} returns once what has been polled is written.
+   */
+  public void stop() {
+    stopped = true;
+    if (source instanceof KafkaSource kafkaSource) {
+      kafkaSource.wakeup();
+    }
+  }
+
+  /**
+   * The write stage: write every queued batch, in order, until the end of the queue is reached.
+   */
+  private void writeAll(
+      BlockingQueue<Batch> queue,
+      Map<TopicPartition, AtomicLong> queued,
+      Map<TopicPartition, Meters> metricPartition,
+      Meters metricTotal,
+      Timer metricLatency) {
+    List<Batch> batches = new ArrayList<>();
+    while (true) {
+      try {
+        batches.add(queue.take());
+      } catch (InterruptedException e) {
+        log.warn(".write.interrupted: {} batches not written", queue.size());
+        return;
+      }
+      queue.drainTo(batches);
+      for (Batch batch : batches) {
+        if (batch == END) {
+          return;
+        }
+        write(
+            batch.records(),
+            writers.get(batch.partition()),
+            metricPartition.get(batch.partition()),
+            metricTotal);
+        queued.get(batch.partition()).addAndGet(-batch.records().size());
+        metricLatency.record(System.nanoTime() - batch.polled(), TimeUnit.NANOSECONDS);
+      }
+      batches.clear();
+    }
+  }
 
-          CassetteRecord record =
-              new CassetteRecord(
-                  headers,
-                  timestamp,
-                  it.partition(),
-                  it.offset(),
-                  k,
-                  Hex.encodeHexString(it.value()));
-
-          log.debug(
-              ".record: ts={}, type={}, p={}, o={}, k={}",
-              Instant.ofEpochMilli(it.timestamp()),
-              it.timestampType(),
+  /** Resume the paused partitions that the writer has drained to half the queue limit. */
+  private void resumeDrained(
+      KafkaSource source,
+      Map<TopicPartition, Long> paused,
+      Map<TopicPartition, AtomicLong> queued,
+      Map<TopicPartition, Timer> metricPaused) {
+    List<TopicPartition> drained =
+        paused.keySet().stream().filter(p -> queued.get(p).get() <= queueRecords / 2).toList();
+    if (!drained.isEmpty()) {
+      source.resume(drained);
+      long now = System.nanoTime();
+      for (TopicPartition partition : drained) {
+        metricPaused.get(partition).record(now - paused.remove(partition), TimeUnit.NANOSECONDS);
+      }
+      log.debug(".record.resumed: p={}", drained);
+    }
+  }
+
+  /**
+   * Pause and forget the partitions that have been read up to their end offset. Positions rather
+   * than record offsets are compared, as transaction markers and compaction leave offsets that no
+   * record has.
+   *
+   * @param paused partitions paused by backpressure; a finished one is no longer resumed
+   * @return whether every partition is finished
+   */
+  private boolean finished(
+      KafkaSource source,
+      Map<TopicPartition, Long> unfinished,
+      Map<TopicPartition, Long> paused,
+      Map<TopicPartition, Timer> metricPaused) {
+    List<TopicPartition> done =
+        unfinished.entrySet().stream()
+            .filter(e -> source.position(e.getKey()) >= e.getValue())
+            .map(Map.Entry::getKey)
+            .toList();
+    if (!done.isEmpty()) {
+      source.pause(done);
+      done.forEach(unfinished::remove);
+      for (TopicPartition partition : done) {
+        Long since = paused.remove(partition);
+        if (since != null) {
+          metricPaused.get(partition).record(System.nanoTime() - since, TimeUnit.NANOSECONDS);
+        }
+      }
+      log.info(".record.finished: p={}", done);
+    }
+    return unfinished.isEmpty();
+  }
+
+  /**
+   * @return the offset of the first record of a partition's batch with a timestamp at or after
+   *     {@code timestamp}, or {@link OffsetBound#OPEN} if there is none
+   */
+  private static long reached(List<ConsumerRecord<byte[], byte[]>> batch, long timestamp) {
+    for (ConsumerRecord<byte[], byte[]> record : batch) {
+      if (record.timestamp() >= timestamp) {
+        return record.offset();
+      }
+    }
+    return OffsetBound.OPEN;
+  }
+
+  /** The leading records of a partition's batch that are before {@code endOffset}. */
+  private static List<ConsumerRecord<byte[], byte[]>> before(
+      List<ConsumerRecord<byte[], byte[]>> batch, long endOffset) {
+    int n = 0;
+    while (n < batch.size() && batch.get(n).offset() < endOffset) {
+      n++;
+    }
+    return n == batch.size() ? batch : batch.subList(0, n);
+  }
+
+  /** The records of a batch that every filter rule keeps. */
+  private List<ConsumerRecord<byte[], byte[]>> kept(
+      List<ConsumerRecord<byte[], byte[]>> batch,
+      Map<RecordFilter.Rule, Counter> metricDropped,
+      Counter metricDroppedTotal) {
+    List<ConsumerRecord<byte[], byte[]>> kept = new ArrayList<>(batch.size());
+    for (ConsumerRecord<byte[], byte[]> record : batch) {
+      RecordFilter.Rule rule = filter.drops(record);
+      if (rule == null) {
+        kept.add(record);
+      } else {
+        metricDropped.get(rule).increment();
+        metricDroppedTotal.increment();
+      }
+    }
+    return kept;
+  }
+
+  private void write(
+      List<ConsumerRecord<byte[], byte[]>> records,
+      PartitionWriter writer,
+      Meters metricPartition,
+      Meters metricTotal) {
+    long bytes = 0L;
+    int written = 0;
+    for (ConsumerRecord<byte[], byte[]> it : records) {
+      long timestamp;
+      if (it.timestampType() == TimestampType.NO_TIMESTAMP_TYPE || it.timestampType() == null) {
+        timestamp = Instant.now().toEpochMilli();
+      } else {
+        timestamp = it.timestamp();
+      }
+
+      // Key, value and headers are kept as the raw bytes read from the topic.
+      CassetteRecord record =
+          new CassetteRecord(
+              Arrays.asList(it.headers().toArray()),
+              timestamp,
               it.partition(),
               it.offset(),
-              k);
+              it.key(),
+              it.value());
 
-          if (timestampHeaderName != null && !timestampHeaderName.isBlank()) {
-            record.withHeaderTimestamp(timestampHeaderName);
-          }
+      log.debug(
+          ".record: ts={}, type={}, p={}, o={}",
+          Instant.ofEpochMilli(it.timestamp()),
+          it.timestampType(),
+          it.partition(),
+          it.offset());
 
-          try {
-            String data = mapper.writeValueAsString(record);
-            log.debug(".record: {}", data);
-            sink.writeText(data + "\n");
-            metricWrite.increment();
-            metricWriteTotal.increment();
-          } catch (Exception e) {
-            log.error("Error writing record", e);
-          }
-        }
+      if (timestampHeaderName != null && !timestampHeaderName.isBlank()) {
+        record.withHeaderTimestamp(timestampHeaderName);
+      }
+
+      try {
+        bytes += writer.write(record);
+        written++;
+      } catch (Exception e) {
+        log.error("Error writing record", e);
       }
     }
+    metricPartition.writes.increment(written);
+    metricTotal.writes.increment(written);
+    metricPartition.bytes.increment(bytes);
+    metricTotal.bytes.increment(bytes);
   }
+
+  /** Records and bytes written, for one partition or in total. */
+  private record Meters(Counter writes, Counter bytes) {}
+
+  /** The records of one partition from one poll, waiting to be written. */
+  private record Batch(
+      TopicPartition partition, List<ConsumerRecord<byte[], byte[]>> records, long polled) {}
 }
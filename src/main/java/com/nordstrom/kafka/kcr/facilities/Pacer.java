@@ -0,0 +1,40 @@
+package com.nordstrom.kafka.kcr.facilities;
+
+import java.util.concurrent.locks.LockSupport;
+
+/** Decides when each played record may be sent. */
+public interface Pacer {
+  /**
+   * Wait until the record with {@code timestamp} may be sent.
+   *
+   * @return the schedule lag, i.e. how many nanoseconds after its deadline the wait returned
+   */
+  long await(long timestamp) throws InterruptedException;
+
+  /**
+   * @return the rate currently being played at: a multiplier of the captured timing, or records per
+   *     second for absolute rates
+   */
+  double currentRate();
+
+  /**
+   * Wait until {@link System#nanoTime()} reaches {@code deadline}. Waits longer than {@code
+   * spinNanos} park the thread until just before the deadline and the rest is spun, since parking
+   * cannot wake reliably within a fraction of a millisecond.
+   *
+   * @return how many nanoseconds after the deadline the wait returned
+   */
+  static long sleepUntil(long deadline, long spinNanos) throws InterruptedException {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > spinNanos) {
+      LockSupport.parkNanos(remaining - spinNanos);
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+    }
+    while ((remaining = deadline - System.nanoTime()) > 0) {
+      Thread.onSpinWait();
+    }
+    return -remaining;
+  }
+}
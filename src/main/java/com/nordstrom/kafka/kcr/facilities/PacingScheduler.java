@@ -0,0 +1,97 @@
+package com.nordstrom.kafka.kcr.facilities;
+
+/**
+ * Paces playback against the cassette timeline using {@link System#nanoTime()}. Each record's
+ * send deadline is computed from the fixed start of the run rather than from the previous record,
+ * so oversleeping one record never shifts the ones after it: the schedule catches up instead of
+ * drifting.
+ *
+ * <p>The cassette is played at a constant multiplier or along a {@link RateProfile} of
+ * multipliers. A rate of {@code 0} plays as fast as possible. A profile spans a whole playback
+ * session: a run that starts part way into the session picks the profile up where the previous run
+ * left it, while its cassette timeline restarts from the origin.
+ */
+public class PacingScheduler implements Pacer {
+  public static final long DEFAULT_SPIN_NANOS = 100_000L;
+
+  private final long originMillis;
+  private final RateProfile profile;
+  private final long spinNanos;
+  private final long startNanos;
+  // When the session, and so the profile, started
+  private final long profileStartNanos;
+  // Profile progress already made when this run started
+  private final double progressOffset;
+
+  /**
+   * @param originMillis the cassette timestamp that is played at the moment of construction
+   * @param rate playback rate multiplier, {@code 0} for as fast as possible
+   * @param spinNanos how long before a deadline to stop parking and spin instead
+   */
+  public PacingScheduler(long originMillis, double rate, long spinNanos) {
+    this(originMillis, rate > 0 ? RateProfile.multiplier(rate) : null, spinNanos);
+    if (rate < 0) {
+      throw new IllegalArgumentException("Playback rate must be >= 0");
+    }
+  }
+
+  /**
+   * @param profile multipliers to play at over the run, {@code null} for as fast as possible
+   */
+  public PacingScheduler(long originMillis, RateProfile profile, long spinNanos) {
+    this(originMillis, profile, spinNanos, 0L);
+  }
+
+  /**
+   * @param sessionElapsedNanos how far into the playback session, and so into {@code profile}, this
+   *     run starts
+   */
+  public PacingScheduler(
+      long originMillis, RateProfile profile, long spinNanos, long sessionElapsedNanos) {
+    if (sessionElapsedNanos < 0) {
+      throw new IllegalArgumentException("Session elapsed time must be >= 0");
+    }
+    if (profile != null && profile.isAbsolute()) {
+      throw new IllegalArgumentException("Absolute rates are paced by a TokenBucket");
+    }
+    if (spinNanos < 0) {
+      throw new IllegalArgumentException("Spin threshold must be >= 0");
+    }
+
+    this.originMillis = originMillis;
+    this.profile = profile;
+    this.spinNanos = spinNanos;
+    this.startNanos = System.nanoTime();
+    profileStartNanos = startNanos - sessionElapsedNanos;
+    progressOffset = profile == null ? 0.0 : profile.progressAt(sessionElapsedNanos);
+  }
+
+  /**
+   * @return the {@link System#nanoTime()} at which the record with {@code timestamp} is due
+   */
+  public long deadlineNanos(long timestamp) {
+    if (profile == null) {
+      return startNanos;
+    }
+    return profileStartNanos
+        + profile.elapsedFor(progressOffset + (timestamp - originMillis) / 1000.0);
+  }
+
+  /**
+   * Wait until the record with {@code timestamp} is due.
+   *
+   * @return the schedule lag (or {@code 0} when playing as fast as possible)
+   */
+  @Override
+  public long await(long timestamp) throws InterruptedException {
+    if (profile == null) {
+      return 0L;
+    }
+    return Pacer.sleepUntil(deadlineNanos(timestamp), spinNanos);
+  }
+
+  @Override
+  public double currentRate() {
+    return profile == null ? 0.0 : profile.rateAt(System.nanoTime() - profileStartNanos);
+  }
+}
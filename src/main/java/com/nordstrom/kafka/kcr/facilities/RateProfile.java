@@ -0,0 +1,204 @@
+package com.nordstrom.kafka.kcr.facilities;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A playback rate that changes over the course of a run, given as comma separated stages:
+ *
+ * <ul>
+ *   <li>{@code <rate>:<duration>} holds a rate, e.g. {@code 2x:10m}
+ *   <li>{@code <rate>-<rate>:<duration>} ramps linearly between two rates, e.g. {@code 1x-10x:30m}
+ *   <li>the last stage may leave out its duration and then lasts for the rest of the run; otherwise
+ *       its final rate is held once it ends
+ * </ul>
+ *
+ * Rates are either multipliers of the captured timing ({@code 2x}) or absolute records per second
+ * across all partitions ({@code 50000/s}), which ignore the cassette's timing. A profile uses one
+ * kind only. Durations are as for {@link TimeSpec#parseDuration(String)}.
+ *
+ * <p>A profile maps elapsed run time to progress, the integral of the rate: cassette seconds played
+ * for multipliers, records sent for absolute rates, and back.
+ */
+public class RateProfile {
+  private static final Pattern RATE = Pattern.compile("(\\d+(?:\\.\\d+)?)(x|/s)");
+
+  private final List<Stage> stages;
+  private final boolean absolute;
+
+  private RateProfile(List<Stage> stages, boolean absolute) {
+    this.stages = stages;
+    this.absolute = absolute;
+  }
+
+  /** A profile holding {@code multiplier} for the whole run. */
+  public static RateProfile multiplier(double multiplier) {
+    if (multiplier <= 0) {
+      throw new IllegalArgumentException("Rate must be > 0");
+    }
+    return new RateProfile(List.of(new Stage(multiplier, multiplier, Long.MAX_VALUE)), false);
+  }
+
+  public static RateProfile parse(String spec) {
+    List<Stage> stages = new ArrayList<>();
+    Boolean absolute = null;
+    String[] parts = spec.trim().split("\\s*,\\s*");
+    for (int i = 0; i < parts.length; i++) {
+      String part = parts[i];
+      int colon = part.indexOf(':');
+      String rates = colon < 0 ? part : part.substring(0, colon);
+      long nanos;
+      if (colon >= 0) {
+        nanos = TimeSpec.parseDuration(part.substring(colon + 1)).toNanos();
+        if (nanos <= 0) {
+          throw new IllegalArgumentException("Stage must last > 0: " + part);
+        }
+      } else if (i == parts.length - 1) {
+        nanos = Long.MAX_VALUE;
+      } else {
+        throw new IllegalArgumentException(
+            "Only the last stage may leave out its duration: " + part);
+      }
+
+      String[] ends = rates.split("-", -1);
+      if (ends.length > 2) {
+        throw new IllegalArgumentException("Not a rate or ramp: " + part);
+      }
+      Matcher from = rate(ends[0], part);
+      Matcher to = rate(ends[ends.length - 1], part);
+      boolean stageAbsolute = from.group(2).equals("/s");
+      if (stageAbsolute != to.group(2).equals("/s")
+          || (absolute != null && absolute != stageAbsolute)) {
+        throw new IllegalArgumentException("Cannot mix multipliers and records/s: " + spec);
+      }
+      absolute = stageAbsolute;
+      Stage stage =
+          new Stage(Double.parseDouble(from.group(1)), Double.parseDouble(to.group(1)), nanos);
+      if (stage.from != stage.to && nanos == Long.MAX_VALUE) {
+        throw new IllegalArgumentException("A ramp needs a duration: " + part);
+      }
+      stages.add(stage);
+    }
+
+    Stage last = stages.get(stages.size() - 1);
+    if (last.to <= 0) {
+      throw new IllegalArgumentException("Profile must end at a rate > 0: " + spec);
+    }
+    if (last.nanos != Long.MAX_VALUE) {
+      stages.add(new Stage(last.to, last.to, Long.MAX_VALUE));
+    }
+    return new RateProfile(List.copyOf(stages), absolute);
+  }
+
+  private static Matcher rate(String text, String stage) {
+    Matcher m = RATE.matcher(text.trim());
+    if (!m.matches()) {
+      throw new IllegalArgumentException("Not a rate (e.g. 2x or 500/s): " + stage);
+    }
+    return m;
+  }
+
+  /** Whether rates are records per second rather than multipliers of the captured timing. */
+  public boolean isAbsolute() {
+    return absolute;
+  }
+
+  /**
+   * @return the rate {@code elapsedNanos} into the run
+   */
+  public double rateAt(long elapsedNanos) {
+    long start = 0L;
+    for (Stage stage : stages) {
+      if (stage.nanos == Long.MAX_VALUE || elapsedNanos < start + stage.nanos) {
+        return stage.rateAt(Math.max(0L, elapsedNanos - start));
+      }
+      start += stage.nanos;
+    }
+    throw new IllegalStateException("Profile has no open-ended stage");
+  }
+
+  /**
+   * @return the progress, in rate units times seconds, made {@code elapsedNanos} into the run
+   */
+  public double progressAt(long elapsedNanos) {
+    double progress = 0.0;
+    long start = 0L;
+    for (Stage stage : stages) {
+      if (stage.nanos == Long.MAX_VALUE || elapsedNanos < start + stage.nanos) {
+        return progress + stage.progressAt(Math.max(0L, elapsedNanos - start));
+      }
+      progress += stage.progressAt(stage.nanos);
+      start += stage.nanos;
+    }
+    throw new IllegalStateException("Profile has no open-ended stage");
+  }
+
+  /**
+   * @return how far into the run, in nanoseconds, {@code progress} is reached; negative progress is
+   *     extrapolated back from the initial rate
+   */
+  public long elapsedFor(double progress) {
+    if (progress <= 0) {
+      double rate = stages.get(0).from;
+      return rate > 0 ? Math.round(progress / rate * 1e9) : 0L;
+    }
+    double remaining = progress;
+    long start = 0L;
+    for (Stage stage : stages) {
+      double total =
+          stage.nanos == Long.MAX_VALUE ? Double.MAX_VALUE : stage.progressAt(stage.nanos);
+      if (remaining <= total) {
+        return start + stage.elapsedFor(remaining);
+      }
+      remaining -= total;
+      start += stage.nanos;
+    }
+    throw new IllegalStateException("Profile has no open-ended stage");
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    String unit = absolute ? "/s" : "x";
+    for (Stage stage : stages) {
+      if (!text.isEmpty()) {
+        text.append(',');
+      }
+      text.append(stage.from).append(unit);
+      if (stage.to != stage.from) {
+        text.append('-').append(stage.to).append(unit);
+      }
+      if (stage.nanos != Long.MAX_VALUE) {
+        text.append(':').append(Duration.ofNanos(stage.nanos));
+      }
+    }
+    return text.toString();
+  }
+
+  /** A linear ramp from {@code from} to {@code to} over {@code nanos}. */
+  private record Stage(double from, double to, long nanos) {
+    private double slope() {
+      // Rate change per second
+      return nanos == Long.MAX_VALUE ? 0.0 : (to - from) / (nanos / 1e9);
+    }
+
+    double rateAt(long elapsedNanos) {
+      return from + slope() * (elapsedNanos / 1e9);
+    }
+
+    double progressAt(long elapsedNanos) {
+      double s = elapsedNanos / 1e9;
+      return from * s + slope() * s * s / 2;
+    }
+
+    long elapsedFor(double progress) {
+      // Solve from * s + slope / 2 * s^2 = progress for s, in a form that is stable when slope ~ 0
+      double a = slope() / 2;
+      double s = 2 * progress / (from + Math.sqrt(Math.max(0.0, from * from + 4 * a * progress)));
+      return Math.round(s * 1e9);
+    }
+  }
+}
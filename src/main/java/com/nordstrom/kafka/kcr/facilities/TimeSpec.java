@@ -0,0 +1,69 @@
+package com.nordstrom.kafka.kcr.facilities;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses a point in time given on the command line, relative to a cassette's recorded span:
+ *
+ * <ul>
+ *   <li>an ISO-8601 instant, e.g. {@code 2024-05-17T17:08:00Z}
+ *   <li>epoch milliseconds, e.g. {@code 1715965680000}
+ *   <li>{@code +<duration>}: that long after the start of the cassette, e.g. {@code +1h30m}
+ *   <li>{@code -<duration>}: that long before the end of the cassette, e.g. {@code -10m}
+ * </ul>
+ *
+ * Durations are one or more {@code <number><unit>} terms with units {@code d}, {@code h}, {@code
+ * m}, {@code s} or {@code ms}.
+ */
+public class TimeSpec {
+  private static final Pattern EPOCH_MILLIS = Pattern.compile("\\d+");
+  private static final Pattern DURATION = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|d|h|m|s)");
+
+  private TimeSpec() {
+    // Utility class
+  }
+
+  public static Instant resolve(String spec, Instant start, Instant end) {
+    String s = spec.trim();
+    if (s.startsWith("+")) {
+      return start.plus(parseDuration(s.substring(1)));
+    }
+    if (s.startsWith("-")) {
+      return end.minus(parseDuration(s.substring(1)));
+    }
+    if (EPOCH_MILLIS.matcher(s).matches()) {
+      return Instant.ofEpochMilli(Long.parseLong(s));
+    }
+    try {
+      return Instant.parse(s);
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Not a timestamp or relative time: " + spec, e);
+    }
+  }
+
+  public static Duration parseDuration(String text) {
+    Matcher m = DURATION.matcher(text);
+    double millis = 0;
+    int end = 0;
+    while (m.find() && m.start() == end) {
+      double amount = Double.parseDouble(m.group(1));
+      millis +=
+          switch (m.group(2)) {
+            case "d" -> amount * 86_400_000;
+            case "h" -> amount * 3_600_000;
+            case "m" -> amount * 60_000;
+            case "s" -> amount * 1_000;
+            default -> amount;
+          };
+      end = m.end();
+    }
+    if (end == 0 || end != text.length()) {
+      throw new IllegalArgumentException("Not a duration: " + text);
+    }
+    return Duration.ofMillis((long) millis);
+  }
+}
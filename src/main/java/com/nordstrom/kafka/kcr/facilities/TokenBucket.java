@@ -0,0 +1,59 @@
+package com.nordstrom.kafka.kcr.facilities;
+
+/**
+ * Paces playback at an absolute rate, in records per second, shared by every thread that sends
+ * through it and following a {@link RateProfile}. Cassette timing is ignored.
+ *
+ * <p>Tokens accrue at the profile's rate from the start of the run. When the senders fall behind,
+ * at most {@code burst} unused tokens are kept, so a stall is not followed by an unbounded catch-up
+ * burst.
+ */
+public class TokenBucket implements Pacer {
+  public static final int DEFAULT_BURST = 100;
+
+  private final RateProfile profile;
+  private final double burst;
+  private final long spinNanos;
+  private final long startNanos;
+  private double taken;
+
+  public TokenBucket(RateProfile profile, int burst, long spinNanos) {
+    if (!profile.isAbsolute()) {
+      throw new IllegalArgumentException("Multipliers are paced by a PacingScheduler");
+    }
+    if (burst <= 0) {
+      throw new IllegalArgumentException("Burst must be > 0");
+    }
+    if (spinNanos < 0) {
+      throw new IllegalArgumentException("Spin threshold must be >= 0");
+    }
+
+    this.profile = profile;
+    this.burst = burst;
+    this.spinNanos = spinNanos;
+    this.startNanos = System.nanoTime();
+  }
+
+  /** Take a token, waiting until one has accrued. The timestamp is ignored. */
+  @Override
+  public long await(long timestamp) throws InterruptedException {
+    return Pacer.sleepUntil(reserve(), spinNanos);
+  }
+
+  /**
+   * @return the {@link System#nanoTime()} at which the next token accrues
+   */
+  synchronized long reserve() {
+    double accrued = profile.progressAt(System.nanoTime() - startNanos);
+    if (accrued - taken > burst) {
+      taken = accrued - burst;
+    }
+    taken += 1;
+    return startNanos + profile.elapsedFor(taken);
+  }
+
+  @Override
+  public double currentRate() {
+    return profile.rateAt(System.nanoTime() - startNanos);
+  }
+}
@@ -1,18 +1,42 @@
 package com.nordstrom.kafka.kcr.io;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.StandardOpenOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Appends to a single file through a channel that stays open for the life of the sink. Writes are
+ * collected in a buffer and group-committed according to the sink's {@link FlushPolicy}.
+ *
+ * <p>The channel is closed by an interrupt of a thread that is writing through it. Flushing or
+ * closing a sink whose channel was closed that way, with data it could not write, fails rather
+ * than losing that data silently.
+ */
 public class FileSink implements Sink {
   private static final Logger log = LoggerFactory.getLogger(FileSink.class);
   private final File file;
+  private final FlushPolicy policy;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final long flushIntervalNanos;
+  private long lastFlushNanos;
+  private long position;
+  private boolean closed;
+  // Set when a write failed part way, so the buffer no longer tells what was not written
+  private boolean unwritten;
 
   public FileSink(String parent, String name) {
+    this(parent, name, FlushPolicy.DEFAULT);
+  }
+
+  public FileSink(String parent, String name, FlushPolicy policy) {
     log.trace(".init");
     try {
       if (parent == null || parent.isBlank()) {
@@ -28,9 +52,16 @@ public class FileSink implements Sink {
           throw new RuntimeException(new FileAlreadyExistsException(file.getAbsolutePath()));
         }
       }
+      channel =
+          FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
+
+    this.policy = policy;
+    buffer = ByteBuffer.allocate(policy.getFlushBytes());
+    flushIntervalNanos = policy.getFlushInterval().toNanos();
+    lastFlushNanos = System.nanoTime();
     log.trace(".init.ok:file={}", file.getAbsolutePath());
   }
 
@@ -46,19 +77,101 @@ public class FileSink implements Sink {
 
   @Override
   public void writeText(String text) {
-    try (FileOutputStream fos = new FileOutputStream(file, true)) {
-      fos.write(text.getBytes(StandardCharsets.UTF_8));
+    writeBytes(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void writeBytes(byte[] bytes) {
+    writeBytes(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public synchronized void writeBytes(byte[] bytes, int offset, int length) {
+    if (!channel.isOpen()) {
+      throw new RuntimeException(new ClosedChannelException());
+    }
+    try {
+      if (length > buffer.remaining()) {
+        drain();
+      }
+      if (length >= buffer.capacity()) {
+        // Too big to be worth buffering
+        writeFully(ByteBuffer.wrap(bytes, offset, length));
+      } else {
+        buffer.put(bytes, offset, length);
+      }
+      position += length;
+      if (!buffer.hasRemaining() || System.nanoTime() - lastFlushNanos >= flushIntervalNanos) {
+        flush();
+      }
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
   @Override
-  public void writeBytes(byte[] bytes) {
-    try (FileOutputStream fos = new FileOutputStream(file, true)) {
-      fos.write(bytes);
+  public synchronized long position() {
+    return position;
+  }
+
+  @Override
+  public synchronized void flush() {
+    if (closed) {
+      return;
+    }
+    if (!channel.isOpen()) {
+      if (unwritten || buffer.position() > 0) {
+        throw new RuntimeException(
+            "Buffered data not written to " + file.getAbsolutePath(), new ClosedChannelException());
+      }
+      return;
+    }
+    try {
+      drain();
+      if (policy.isFsync()) {
+        channel.force(false);
+      }
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
+    lastFlushNanos = System.nanoTime();
+  }
+
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    try {
+      flush();
+    } finally {
+      closed = true;
+      try {
+        channel.close();
+      } catch (IOException e) {
+        log.warn(".close.failed:file={}", file.getAbsolutePath(), e);
+      }
+    }
+    log.trace(".close.ok:file={}", file.getAbsolutePath());
+  }
+
+  private void drain() throws IOException {
+    if (buffer.position() == 0) {
+      return;
+    }
+    buffer.flip();
+    writeFully(buffer);
+    buffer.clear();
+  }
+
+  private void writeFully(ByteBuffer src) throws IOException {
+    try {
+      while (src.hasRemaining()) {
+        channel.write(src);
+      }
+    } catch (IOException e) {
+      unwritten = true;
+      throw e;
+    }
   }
 }
@@ -1,8 +1,22 @@
 package com.nordstrom.kafka.kcr.io;
 
 public class FileSinkFactory implements SinkFactory {
+  private final FlushPolicy policy;
+
+  public FileSinkFactory() {
+    this(FlushPolicy.DEFAULT);
+  }
+
+  public FileSinkFactory(FlushPolicy policy) {
+    this.policy = policy;
+  }
+
   @Override
   public Sink create(String parent, String name) {
-    return new FileSink(parent, name);
+    return new FileSink(parent, name, policy);
+  }
+
+  public FlushPolicy getPolicy() {
+    return policy;
   }
 }
@@ -0,0 +1,45 @@
+package com.nordstrom.kafka.kcr.io;
+
+import java.time.Duration;
+
+/**
+ * Controls when a buffered {@link Sink} pushes its data to the underlying file: once {@code
+ * flushBytes} have been buffered, or once {@code flushInterval} has elapsed since the last flush,
+ * whichever comes first. With {@code fsync} enabled every flush is also forced to the storage
+ * device.
+ */
+public class FlushPolicy {
+  public static final int DEFAULT_FLUSH_BYTES = 64 * 1024;
+  public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+  public static final FlushPolicy DEFAULT =
+      new FlushPolicy(DEFAULT_FLUSH_BYTES, DEFAULT_FLUSH_INTERVAL, false);
+
+  private final int flushBytes;
+  private final Duration flushInterval;
+  private final boolean fsync;
+
+  public FlushPolicy(int flushBytes, Duration flushInterval, boolean fsync) {
+    if (flushBytes <= 0) {
+      throw new IllegalArgumentException("Flush size must be > 0");
+    }
+    if (flushInterval == null || flushInterval.isNegative()) {
+      throw new IllegalArgumentException("Flush interval must be >= 0");
+    }
+
+    this.flushBytes = flushBytes;
+    this.flushInterval = flushInterval;
+    this.fsync = fsync;
+  }
+
+  public int getFlushBytes() {
+    return flushBytes;
+  }
+
+  public Duration getFlushInterval() {
+    return flushInterval;
+  }
+
+  public boolean isFsync() {
+    return fsync;
+  }
+}
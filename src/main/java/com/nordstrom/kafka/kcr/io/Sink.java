@@ -1,6 +1,8 @@
 package com.nordstrom.kafka.kcr.io;
 
-public interface Sink {
+import java.util.Arrays;
+
+public interface Sink extends AutoCloseable {
   String getPath();
 
   void setPath(String path);
@@ -8,4 +10,19 @@ public interface Sink {
   void writeText(String text);
 
   void writeBytes(byte[] bytes);
+
+  /** Write {@code length} bytes of {@code bytes} starting at {@code offset}. */
+  default void writeBytes(byte[] bytes, int offset, int length) {
+    writeBytes(Arrays.copyOfRange(bytes, offset, offset + length));
+  }
+
+  /** Number of bytes written to the sink so far, including any still buffered. */
+  long position();
+
+  /** Push any buffered data to the underlying storage. */
+  void flush();
+
+  /** Flush and release the underlying storage. Writes after close fail. */
+  @Override
+  void close();
 }
@@ -0,0 +1,27 @@
+package com.nordstrom.kafka.kcr.io;
+
+import java.io.OutputStream;
+
+/**
+ * {@link OutputStream} view of a {@link Sink}, for encoders that write to a stream. Flushing and
+ * closing the stream are left to the owner of the sink.
+ */
+public class SinkOutputStream extends OutputStream {
+  private final Sink sink;
+  private final byte[] single = new byte[1];
+
+  public SinkOutputStream(Sink sink) {
+    this.sink = sink;
+  }
+
+  @Override
+  public void write(int b) {
+    single[0] = (byte) b;
+    sink.writeBytes(single, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    sink.writeBytes(bytes, offset, length);
+  }
+}
@@ -1,5 +1,9 @@
 package com.nordstrom.kafka.kcr.io;
 
+import java.util.List;
+import org.apache.kafka.common.TopicPartition;
+
 public interface SourceFactory {
-  Source create(int partition);
+  /** Create a source that reads every one of {@code partitions}, of any number of topics. */
+  Source create(List<TopicPartition> partitions);
 }
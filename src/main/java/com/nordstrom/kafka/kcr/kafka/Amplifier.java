@@ -0,0 +1,67 @@
+package com.nordstrom.kafka.kcr.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Fans every played record out into several copies, to replay a cassette at a multiple of its
+ * recorded volume. The copies of a record are spread evenly over the gap since the previous record
+ * of the stream, the last copy being the record itself at its recorded time, so amplified traffic
+ * keeps the shape of the recording instead of arriving in bursts. Every copy but the last gets its
+ * key suffixed with {@code #<copy>}, so copies hash to other partitions and are distinct keys to
+ * compaction.
+ *
+ * <p>One amplifier serves one stream of records for one run; it is not thread safe.
+ */
+public class Amplifier {
+  private final int copies;
+  private long previous = Long.MIN_VALUE;
+  private long current;
+
+  public Amplifier(int copies) {
+    if (copies <= 0) {
+      throw new IllegalArgumentException("Copies must be > 0");
+    }
+    this.copies = copies;
+  }
+
+  public int copies() {
+    return copies;
+  }
+
+  /** Start the copies of the next record of the stream. */
+  public void next(long timestamp) {
+    previous = previous == Long.MIN_VALUE ? timestamp : current;
+    current = timestamp;
+  }
+
+  /**
+   * @return when {@code copy} of the current record is due, the last copy at its timestamp
+   */
+  public long timestamp(int copy) {
+    long gap = Math.max(0L, current - previous);
+    return previous + gap * (copy + 1) / copies;
+  }
+
+  /**
+   * @return how far {@code copy} is from the record itself: 0 for the last copy
+   */
+  public int salt(int copy) {
+    return copies - 1 - copy;
+  }
+
+  /**
+   * @return the key of {@code copy}: the record's own key for the last copy, otherwise the key
+   *     suffixed with {@code #<salt>}; keyless records stay keyless
+   */
+  public byte[] key(byte[] key, int copy) {
+    int salt = salt(copy);
+    if (key == null || salt == 0) {
+      return key;
+    }
+    byte[] suffix = ("#" + salt).getBytes(StandardCharsets.UTF_8);
+    byte[] salted = Arrays.copyOf(key, key.length + suffix.length);
+    System.arraycopy(suffix, 0, salted, key.length, suffix.length);
+    return salted;
+  }
+}
@@ -0,0 +1,130 @@
+package com.nordstrom.kafka.kcr.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends records asynchronously while bounding how many are awaiting acknowledgement. Records sent
+ * through one window keep their order (the producer preserves per-partition send order), and
+ * {@link #drain()} waits for every outstanding send to complete.
+ */
+public class InFlightWindow {
+  private static final Logger log = LoggerFactory.getLogger(InFlightWindow.class);
+
+  private final Function<ProducerRecord<byte[], byte[]>, Producer<byte[], byte[]>> producers;
+  private final int maxInFlight;
+  private final Semaphore permits;
+  private final Counter metricSend;
+  private final Counter metricSendTotal;
+  private final Counter metricError;
+  private final Counter metricErrorTotal;
+  private final Counter metricBytes;
+  private final Counter metricBytesTotal;
+  private final Timer metricLatency;
+
+  public InFlightWindow(
+      Producer<byte[], byte[]> producer,
+      int maxInFlight,
+      String partition,
+      MeterRegistry registry) {
+    this(record -> producer, maxInFlight, partition, registry);
+  }
+
+  /** Send each record through the producer of the pool for its topic and partition. */
+  public InFlightWindow(
+      ProducerPool producers, int maxInFlight, String partition, MeterRegistry registry) {
+    this(
+        record -> producers.forPartition(record.topic(), record.partition()),
+        maxInFlight,
+        partition,
+        registry);
+  }
+
+  private InFlightWindow(
+      Function<ProducerRecord<byte[], byte[]>, Producer<byte[], byte[]>> producers,
+      int maxInFlight,
+      String partition,
+      MeterRegistry registry) {
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException("In-flight window must be > 0");
+    }
+
+    this.producers = producers;
+    this.maxInFlight = maxInFlight;
+    permits = new Semaphore(maxInFlight);
+    metricSend = registry.counter("send.total", "partition", partition);
+    metricSendTotal = registry.counter("send.total");
+    metricError = registry.counter("send.error.total", "partition", partition);
+    metricErrorTotal = registry.counter("send.error.total");
+    metricBytes = registry.counter("send.bytes", "partition", partition);
+    metricBytesTotal = registry.counter("send.bytes");
+    metricLatency =
+        Timer.builder("send.latency")
+            .description("Time from sending a record to its acknowledgement")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .publishPercentileHistogram()
+            .register(registry);
+  }
+
+  /** Send a record, blocking while the window is full. */
+  public void send(ProducerRecord<byte[], byte[]> record) throws InterruptedException {
+    permits.acquire();
+    long sent = System.nanoTime();
+    try {
+      Producer<byte[], byte[]> producer = producers.apply(record);
+      producer.send(
+          record,
+          (metadata, exception) -> {
+            // Counted before the permit is released, so they are complete once drain() returns
+            try {
+              if (exception != null) {
+                failed(record, exception);
+              } else {
+                metricLatency.record(System.nanoTime() - sent, TimeUnit.NANOSECONDS);
+                metricSend.increment();
+                metricSendTotal.increment();
+                int bytes = length(record.key()) + length(record.value());
+                metricBytes.increment(bytes);
+                metricBytesTotal.increment(bytes);
+              }
+            } finally {
+              permits.release();
+            }
+          });
+    } catch (RuntimeException e) {
+      try {
+        failed(record, e);
+      } finally {
+        permits.release();
+      }
+    }
+  }
+
+  /** Wait until every record sent through this window has been acknowledged or has failed. */
+  public void drain() throws InterruptedException {
+    permits.acquire(maxInFlight);
+    permits.release(maxInFlight);
+  }
+
+  public int inFlight() {
+    return maxInFlight - permits.availablePermits();
+  }
+
+  private static int length(byte[] bytes) {
+    return bytes == null ? 0 : bytes.length;
+  }
+
+  private void failed(ProducerRecord<byte[], byte[]> record, Exception e) {
+    metricError.increment();
+    metricErrorTotal.increment();
+    log.error("Error during send: partition={}, exception={}", record.partition(), e.toString());
+  }
+}
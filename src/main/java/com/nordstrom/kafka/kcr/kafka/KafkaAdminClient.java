@@ -3,6 +3,7 @@ package com.nordstrom.kafka.kcr.kafka;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.DescribeTopicsResult;
@@ -36,4 +37,15 @@ public class KafkaAdminClient {
       throw new RuntimeException(e);
     }
   }
+
+  /**
+   * @return names of all topics visible to the client, leaving out internal topics
+   */
+  public Set<String> listTopics() {
+    try {
+      return client.listTopics().names().get();
+    } catch (InterruptedException | ExecutionException e) {
+      throw new RuntimeException(e);
+    }
+  }
 }
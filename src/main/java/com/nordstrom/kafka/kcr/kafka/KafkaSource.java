@@ -2,7 +2,9 @@ package com.nordstrom.kafka.kcr.kafka;
 
 import com.nordstrom.kafka.kcr.io.Source;
 import java.time.Duration;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
@@ -23,12 +25,18 @@ public class KafkaSource implements Source {
       "org.apache.kafka.common.serialization.StringSerializer";
 
   private final KafkaConsumer<byte[], byte[]> client;
-  private final String topic;
-  private final int partitionNumber;
+  private final List<TopicPartition> partitions;
 
   public KafkaSource(Properties config, String topic, int partitionNumber) {
-    this.topic = topic;
-    this.partitionNumber = partitionNumber;
+    this(config, List.of(new TopicPartition(topic, partitionNumber)));
+  }
+
+  /** A single consumer that reads all of {@code partitions}, which may span several topics. */
+  public KafkaSource(Properties config, List<TopicPartition> partitions) {
+    if (partitions.isEmpty()) {
+      throw new IllegalArgumentException("A source must read at least one partition");
+    }
+    this.partitions = List.copyOf(partitions);
 
     Properties consumerConfig = new Properties();
     consumerConfig.putAll(config);
@@ -46,9 +54,48 @@ public class KafkaSource implements Source {
     throw new UnsupportedOperationException("not implemented");
   }
 
+  public List<TopicPartition> getPartitions() {
+    return partitions;
+  }
+
   public void assign() {
-    TopicPartition partition = new TopicPartition(topic, partitionNumber);
-    client.assign(Collections.singletonList(partition));
+    client.assign(partitions);
+  }
+
+  /**
+   * @return the offset of {@code bound} in every partition of the source
+   */
+  public Map<TopicPartition, Long> offsetsFor(OffsetBound bound, boolean start) {
+    return bound.resolve(client, partitions, start);
+  }
+
+  /** Start reading each partition at its offset in {@code offsets}. */
+  public void seek(Map<TopicPartition, Long> offsets) {
+    offsets.forEach(client::seek);
+  }
+
+  /**
+   * @return the offset of the next record that will be read from {@code partition}
+   */
+  public long position(TopicPartition partition) {
+    return client.position(partition);
+  }
+
+  /** Stop fetching {@code partitions}, until they are resumed. */
+  public void pause(Collection<TopicPartition> partitions) {
+    client.pause(partitions);
+  }
+
+  /** Fetch paused {@code partitions} again. */
+  public void resume(Collection<TopicPartition> partitions) {
+    client.resume(partitions);
+  }
+
+  /**
+   * Abort a blocking call of the consumer, such as {@link #poll(Duration)}, from another thread.
+   */
+  public void wakeup() {
+    client.wakeup();
   }
 
   public ConsumerRecords<byte[], byte[]> poll(Duration duration) {
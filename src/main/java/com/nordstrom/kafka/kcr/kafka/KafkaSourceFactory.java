@@ -2,7 +2,9 @@ package com.nordstrom.kafka.kcr.kafka;
 
 import com.nordstrom.kafka.kcr.io.Source;
 import com.nordstrom.kafka.kcr.io.SourceFactory;
+import java.util.List;
 import java.util.Properties;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,11 +30,13 @@ public class KafkaSourceFactory implements SourceFactory {
   }
 
   @Override
-  public Source create(int partition) {
-    // Unique cid
-    String cid = "kcr-" + topic + "-cid-" + id + "-" + partition;
+  public Source create(List<TopicPartition> partitions) {
+    // Unique cid; sources never share partitions, so the first one identifies the source
+    TopicPartition first = partitions.get(0);
+    String suffix = first.topic().equals(topic) ? "" + first.partition() : first.toString();
+    String cid = "kcr-" + topic + "-cid-" + id + "-" + suffix;
     config.put("client.id", cid);
 
-    return new KafkaSource(config, topic, partition);
+    return new KafkaSource(config, partitions);
   }
 }
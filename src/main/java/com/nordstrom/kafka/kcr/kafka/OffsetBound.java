@@ -0,0 +1,138 @@
+package com.nordstrom.kafka.kcr.kafka;
+
+import com.nordstrom.kafka.kcr.facilities.TimeSpec;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * Where recording of each partition starts or stops, resolved to offsets through the consumer when
+ * recording begins. A stop bound is exclusive: the record at its offset is not recorded.
+ */
+public sealed interface OffsetBound {
+  /** The offset of a stop bound that no record has reached yet. */
+  long OPEN = Long.MAX_VALUE;
+
+  /**
+   * @param start whether the bound is where recording starts rather than where it stops
+   * @return the bound's offset in every one of {@code partitions}, or {@link #OPEN} in those where
+   *     a stop bound has not been reached yet
+   */
+  Map<TopicPartition, Long> resolve(
+      Consumer<?, ?> consumer, Collection<TopicPartition> partitions, boolean start);
+
+  /**
+   * Parse {@code earliest}, {@code end} (the end offset when recording begins), or a time as for
+   * {@link TimeSpec#resolve(String, Instant, Instant)} where {@code -<duration>} is before {@code
+   * now}.
+   */
+  static OffsetBound parseTime(String spec, Instant now) {
+    return switch (spec.trim()) {
+      case "earliest" -> new Earliest();
+      case "end", "now" -> new End();
+      default -> new AtTime(TimeSpec.resolve(spec, now, now));
+    };
+  }
+
+  /**
+   * Parse an offset for every partition, e.g. {@code 1000}, or comma separated {@code
+   * <partition>=<offset>} or {@code <topic>-<partition>=<offset>} pairs. Partitions that are not
+   * listed start at the earliest retained offset or stop at the end offset.
+   */
+  static OffsetBound parseOffsets(String spec) {
+    String s = spec.trim();
+    if (AtOffsets.OFFSET.matcher(s).matches()) {
+      return new AtOffsets(Long.parseLong(s), Map.of());
+    }
+    Map<String, Long> offsets = new HashMap<>();
+    for (String pair : s.split("\\s*,\\s*")) {
+      Matcher m = AtOffsets.PAIR.matcher(pair);
+      if (!m.matches()) {
+        throw new IllegalArgumentException("Not an offset or <partition>=<offset>: " + pair);
+      }
+      offsets.put(m.group(1), Long.parseLong(m.group(2)));
+    }
+    return new AtOffsets(null, Map.copyOf(offsets));
+  }
+
+  /** The first offset still retained. */
+  record Earliest() implements OffsetBound {
+    @Override
+    public Map<TopicPartition, Long> resolve(
+        Consumer<?, ?> consumer, Collection<TopicPartition> partitions, boolean start) {
+      return consumer.beginningOffsets(partitions);
+    }
+  }
+
+  /** The offset after the last record when recording begins. */
+  record End() implements OffsetBound {
+    @Override
+    public Map<TopicPartition, Long> resolve(
+        Consumer<?, ?> consumer, Collection<TopicPartition> partitions, boolean start) {
+      return consumer.endOffsets(partitions);
+    }
+  }
+
+  /**
+   * The first record with a timestamp at or after {@code time}. Where no record is that late yet,
+   * a start bound is the end offset; so is a stop bound once {@code time} has passed, but before
+   * then it is {@link #OPEN}, as the record that reaches it is still to come.
+   */
+  record AtTime(Instant time) implements OffsetBound {
+    @Override
+    public Map<TopicPartition, Long> resolve(
+        Consumer<?, ?> consumer, Collection<TopicPartition> partitions, boolean start) {
+      Map<TopicPartition, Long> query = new HashMap<>();
+      partitions.forEach(p -> query.put(p, time.toEpochMilli()));
+      Map<TopicPartition, OffsetAndTimestamp> found = consumer.offsetsForTimes(query);
+      Map<TopicPartition, Long> offsets = new HashMap<>();
+      if (start || !time.isAfter(Instant.now())) {
+        // No record is that late, so the bound is past the last one
+        offsets.putAll(consumer.endOffsets(partitions));
+      } else {
+        partitions.forEach(p -> offsets.put(p, OPEN));
+      }
+      found.forEach(
+          (partition, offset) -> {
+            if (offset != null) {
+              offsets.put(partition, offset.offset());
+            }
+          });
+      return offsets;
+    }
+  }
+
+  /** Explicit offsets, for every partition or by partition. */
+  record AtOffsets(Long all, Map<String, Long> byPartition) implements OffsetBound {
+    private static final Pattern OFFSET = Pattern.compile("\\d+");
+    private static final Pattern PAIR = Pattern.compile("(.+)=(\\d+)");
+
+    @Override
+    public Map<TopicPartition, Long> resolve(
+        Consumer<?, ?> consumer, Collection<TopicPartition> partitions, boolean start) {
+      Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+      Map<TopicPartition, Long> offsets =
+          new HashMap<>(start ? beginning : consumer.endOffsets(partitions));
+      for (TopicPartition partition : partitions) {
+        Long offset = all;
+        if (offset == null) {
+          offset = byPartition.get(partition.toString());
+        }
+        if (offset == null) {
+          offset = byPartition.get(String.valueOf(partition.partition()));
+        }
+        if (offset != null) {
+          // Starting before the log start would reset the consumer to the end of the partition
+          offsets.put(partition, start ? Math.max(offset, beginning.get(partition)) : offset);
+        }
+      }
+      return offsets;
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.nordstrom.kafka.kcr.kafka;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Counts the records played to each partition of a target topic, to show how evenly load lands. */
+public class PartitionSkew {
+  private final String topic;
+  private final AtomicLongArray counts;
+
+  public PartitionSkew(String topic, int partitions) {
+    this.topic = topic;
+    counts = new AtomicLongArray(partitions);
+  }
+
+  public void increment(int partition) {
+    counts.incrementAndGet(partition);
+  }
+
+  public long get(int partition) {
+    return counts.get(partition);
+  }
+
+  /**
+   * @return the busiest partition's count over the mean count, 1.0 when load is perfectly even
+   */
+  public double ratio() {
+    long total = 0L;
+    long max = 0L;
+    for (int p = 0; p < counts.length(); p++) {
+      total += counts.get(p);
+      max = Math.max(max, counts.get(p));
+    }
+    return total == 0L ? 0.0 : max * (double) counts.length() / total;
+  }
+
+  /**
+   * @return one line of the topic's spread: records per partition, idle partitions and max/mean
+   */
+  public String summary() {
+    StringBuilder sb = new StringBuilder(topic).append(" [");
+    int idle = 0;
+    for (int p = 0; p < counts.length(); p++) {
+      long count = counts.get(p);
+      if (count == 0L) {
+        idle++;
+      }
+      sb.append(p == 0 ? "" : ", ").append(count);
+    }
+    return sb.append("] idle=")
+        .append(idle)
+        .append(" max/mean=")
+        .append(String.format("%.2f", ratio()))
+        .toString();
+  }
+}
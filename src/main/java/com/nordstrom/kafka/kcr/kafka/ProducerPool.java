@@ -0,0 +1,132 @@
+package com.nordstrom.kafka.kcr.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+
+/**
+ * A fixed set of producers, each sending to its own share of the target partitions. A single
+ * producer serializes all its network I/O on one sender thread, which saturates well before the
+ * brokers do; sharding by partition spreads that work while keeping every partition on one
+ * producer, so per-partition send order is kept.
+ *
+ * <p>Each producer's own metrics are published as gauges tagged with its shard, so a saturated
+ * shard shows up as a high {@code producer.io.ratio} or a low {@code
+ * producer.buffer.available.bytes}.
+ */
+public class ProducerPool implements AutoCloseable {
+  /**
+   * Producer settings for sending as fast as possible: large, compressed batches given time to
+   * fill, with as many requests in flight as idempotence allows.
+   */
+  public static final Map<String, String> THROUGHPUT =
+      Map.of(
+          "linger.ms", "50",
+          "batch.size", "524288",
+          "compression.type", "lz4",
+          "max.in.flight.requests.per.connection", "5",
+          "buffer.memory", "134217728");
+
+  private static final String METRIC_GROUP = "producer-metrics";
+  private static final List<String> METRICS =
+      List.of(
+          "io-ratio",
+          "buffer-available-bytes",
+          "record-queue-time-avg",
+          "request-latency-avg",
+          "record-send-rate");
+
+  private final List<Producer<byte[], byte[]>> producers;
+
+  /**
+   * @param config producer configuration; each producer's {@code client.id} gets its shard appended
+   *     when there are several
+   */
+  public ProducerPool(Properties config, int size, MeterRegistry registry) {
+    this(create(config, size), registry);
+  }
+
+  public ProducerPool(List<Producer<byte[], byte[]>> producers, MeterRegistry registry) {
+    if (producers.isEmpty()) {
+      throw new IllegalArgumentException("Producer pool must have at least 1 producer");
+    }
+    this.producers = List.copyOf(producers);
+    for (int i = 0; i < this.producers.size(); i++) {
+      Tags tags = Tags.of("producer", String.valueOf(i));
+      for (String name : METRICS) {
+        registry.gauge(
+            "producer." + name.replace('-', '.'),
+            tags,
+            this.producers.get(i),
+            producer -> metricValue(producer, name));
+      }
+    }
+  }
+
+  private static List<Producer<byte[], byte[]>> create(Properties config, int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Producer pool must have at least 1 producer");
+    }
+    List<Producer<byte[], byte[]>> producers = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      Properties shardConfig = new Properties();
+      shardConfig.putAll(config);
+      Object clientId = config.get("client.id");
+      if (clientId != null && size > 1) {
+        shardConfig.put("client.id", clientId + "-" + i);
+      }
+      producers.add(new KafkaProducer<>(shardConfig));
+    }
+    return producers;
+  }
+
+  /**
+   * @return the producer that sends every record to {@code partition} of {@code topic}
+   */
+  public Producer<byte[], byte[]> forPartition(String topic, int partition) {
+    return producers.get(shard(topic, partition, producers.size()));
+  }
+
+  /** Consecutive partitions of a topic go to consecutive shards. */
+  static int shard(String topic, int partition, int size) {
+    return Math.floorMod(topic.hashCode() + partition, size);
+  }
+
+  public int size() {
+    return producers.size();
+  }
+
+  private static double metricValue(Producer<byte[], byte[]> producer, String name) {
+    for (Map.Entry<MetricName, ? extends Metric> metric : producer.metrics().entrySet()) {
+      MetricName metricName = metric.getKey();
+      if (name.equals(metricName.name()) && METRIC_GROUP.equals(metricName.group())) {
+        return metric.getValue().metricValue() instanceof Number value
+            ? value.doubleValue()
+            : Double.NaN;
+      }
+    }
+    return Double.NaN;
+  }
+
+  @Override
+  public void close() {
+    RuntimeException failure = null;
+    for (Producer<byte[], byte[]> producer : producers) {
+      try {
+        producer.close();
+      } catch (RuntimeException e) {
+        failure = failure == null ? e : failure;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+}
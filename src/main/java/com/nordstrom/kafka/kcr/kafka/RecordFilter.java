@@ -0,0 +1,155 @@
+package com.nordstrom.kafka.kcr.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.utils.Utils;
+
+/**
+ * Decides which consumed records are recorded. Every rule must keep a record for it to be recorded;
+ * the rules are applied to the raw consumer record, before anything is copied or encoded.
+ */
+public class RecordFilter {
+  /** Keeps every record. */
+  public static final RecordFilter ALL = new RecordFilter(List.of());
+
+  private static final Pattern RULE = Pattern.compile("([a-z-]+)(?::([^=]+))?(?:=(.*))?");
+
+  /**
+   * A named condition on records.
+   *
+   * @param name the rule as given, to tag the count of records it drops
+   * @param keep whether a record passes the rule
+   */
+  public record Rule(String name, Predicate<ConsumerRecord<byte[], byte[]>> keep) {
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private final List<Rule> rules;
+
+  public RecordFilter(List<Rule> rules) {
+    this.rules = List.copyOf(rules);
+  }
+
+  /**
+   * @return the first rule that does not keep {@code record}, or {@code null} if every rule keeps
+   *     it
+   */
+  public Rule drops(ConsumerRecord<byte[], byte[]> record) {
+    for (Rule rule : rules) {
+      if (!rule.keep().test(record)) {
+        return rule;
+      }
+    }
+    return null;
+  }
+
+  public List<Rule> getRules() {
+    return rules;
+  }
+
+  public boolean isEmpty() {
+    return rules.isEmpty();
+  }
+
+  /**
+   * Parse a rule:
+   *
+   * <ul>
+   *   <li>{@code key=<regex>}: the UTF-8 key matches the regex; keyless records never match
+   *   <li>{@code header:<name>=<regex>}: the last {@code name} header's UTF-8 value matches
+   *   <li>{@code header:<name>}: the record has a {@code name} header
+   *   <li>{@code min-value-bytes=<n>} or {@code max-value-bytes=<n>}: the value size is in bounds
+   * </ul>
+   */
+  public static Rule parse(String spec) {
+    Matcher m = RULE.matcher(spec.trim());
+    if (!m.matches()) {
+      throw new IllegalArgumentException("Not a filter rule: " + spec);
+    }
+    String kind = m.group(1);
+    String name = m.group(2);
+    String argument = m.group(3);
+    try {
+      Predicate<ConsumerRecord<byte[], byte[]>> keep =
+          switch (kind) {
+            case "key" -> {
+              Pattern pattern = Pattern.compile(require(argument, spec));
+              yield r -> r.key() != null && pattern.matcher(utf8(r.key())).matches();
+            }
+            case "header" -> {
+              if (name == null) {
+                throw new IllegalArgumentException("Missing header name: " + spec);
+              }
+              if (argument == null) {
+                yield r -> r.headers().lastHeader(name) != null;
+              }
+              Pattern pattern = Pattern.compile(argument);
+              yield r -> {
+                Header header = r.headers().lastHeader(name);
+                return header != null
+                    && header.value() != null
+                    && pattern.matcher(utf8(header.value())).matches();
+              };
+            }
+            case "min-value-bytes" -> {
+              long min = Long.parseLong(require(argument, spec));
+              yield r -> valueSize(r) >= min;
+            }
+            case "max-value-bytes" -> {
+              long max = Long.parseLong(require(argument, spec));
+              yield r -> valueSize(r) <= max;
+            }
+            default -> throw new IllegalArgumentException("Unknown filter rule: " + spec);
+          };
+      return new Rule(spec.trim(), keep);
+    } catch (PatternSyntaxException | NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid filter rule " + spec + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Keep the records of one key in {@code n}, chosen by hashing the key, so every record of a kept
+   * key is recorded. Keyless records are sampled by offset instead.
+   */
+  public static Rule sampleKeys(int n) {
+    if (n <= 0) {
+      throw new IllegalArgumentException("Key sample must be 1 in a number > 0");
+    }
+    return new Rule(
+        "sample-keys=1/" + n,
+        r -> r.key() == null ? r.offset() % n == 0 : sampled(r.key(), n));
+  }
+
+  /**
+   * Kafka's default partitioner takes the same murmur2 hash modulo the partition count, so the hash
+   * is remixed with a multiplicative hash to keep the sample from following partition boundaries.
+   */
+  static boolean sampled(byte[] key, int n) {
+    long mixed = (Utils.murmur2(key) & 0xffffffffL) * 0x9E3779B97F4A7C15L;
+    return (mixed >>> 32) % n == 0;
+  }
+
+  private static String require(String argument, String spec) {
+    if (argument == null || argument.isEmpty()) {
+      throw new IllegalArgumentException("Missing value: " + spec);
+    }
+    return argument;
+  }
+
+  private static String utf8(byte[] bytes) {
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static long valueSize(ConsumerRecord<byte[], byte[]> record) {
+    return record.value() == null ? 0 : record.value().length;
+  }
+}
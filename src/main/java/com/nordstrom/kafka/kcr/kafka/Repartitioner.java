@@ -0,0 +1,55 @@
+package com.nordstrom.kafka.kcr.kafka;
+
+import org.apache.kafka.common.utils.Utils;
+
+/**
+ * Chooses the partition of the target topic each played record is sent to. One repartitioner
+ * serves one partition file for one run; it is not thread safe.
+ */
+public class Repartitioner {
+  /** How recorded records are spread over the partitions of the target topic. */
+  public enum Strategy {
+    /** The recorded partition modulo the target's partition count. */
+    MODULO,
+    /**
+     * The murmur2 hash of the recorded key, as Kafka's default partitioner does, so keys land
+     * where production traffic would put them. Records without a key fall back to modulo.
+     */
+    KEY_HASH,
+    /** Every target partition in turn. */
+    ROUND_ROBIN
+  }
+
+  private final Strategy strategy;
+  private final int partitions;
+  private int next;
+
+  /**
+   * @param start the first partition a round robin sends to, so that partition files do not all
+   *     start on the same one
+   */
+  public Repartitioner(Strategy strategy, int partitions, int start) {
+    if (partitions <= 0) {
+      throw new IllegalArgumentException("Target partitions must be > 0");
+    }
+    this.strategy = strategy;
+    this.partitions = partitions;
+    next = Math.floorMod(start, partitions);
+  }
+
+  /**
+   * @return the target partition of a record recorded from {@code partition} with {@code key}
+   */
+  public int partition(int partition, byte[] key) {
+    return switch (strategy) {
+      case MODULO -> partition % partitions;
+      case KEY_HASH ->
+          key == null ? partition % partitions : Utils.toPositive(Utils.murmur2(key)) % partitions;
+      case ROUND_ROBIN -> {
+        int target = next;
+        next = (next + 1) % partitions;
+        yield target;
+      }
+    };
+  }
+}
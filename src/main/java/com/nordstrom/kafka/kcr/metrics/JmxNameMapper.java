@@ -9,12 +9,12 @@ public class JmxNameMapper implements HierarchicalNameMapper {
   @Override
   public String toHierarchicalName(Meter.Id id, NamingConvention convention) {
     String name = id.getName();
-    // TODO handle multiple tags
+    // Percentile meters add a tag of their own to any the meter already has
     if (!id.getTags().isEmpty()) {
       String tags =
           id.getTags().stream()
               .map(tag -> tag.getKey() + "." + tag.getValue())
-              .collect(Collectors.joining());
+              .collect(Collectors.joining("."));
       name += "." + tags;
     }
     return name;
@@ -0,0 +1,70 @@
+package com.nordstrom.kafka.kcr.metrics;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import io.micrometer.statsd.StatsdMeterRegistry;
+import picocli.CommandLine.Option;
+
+/**
+ * Command-line options, shared by the commands, for publishing metrics beyond JMX: a scrape
+ * endpoint and a StatsD agent.
+ */
+public class MetricsOptions {
+  @Option(
+      names = {"--metrics-port"},
+      description =
+          "Serve metrics, including latency percentiles, at http://<host>:<port>/metrics in the"
+              + " Prometheus text format; 0 = off (default=${DEFAULT-VALUE})",
+      defaultValue = "0")
+  private int metricsPort;
+
+  @Option(
+      names = {"--statsd"},
+      description = "Also publish metrics to the StatsD agent at <host>:<port>")
+  private String statsd;
+
+  private ScrapeEndpoint endpoint;
+
+  /** Add the requested registries to {@code registry}, which already has its meters. */
+  public void attach(CompositeMeterRegistry registry) {
+    if (metricsPort < 0) {
+      throw new IllegalArgumentException("--metrics-port must be >= 0");
+    }
+    if (statsd != null && !statsd.isBlank()) {
+      registry.add(new StatsdMeterRegistry(statsdConfig(statsd), Clock.SYSTEM));
+    }
+    if (metricsPort > 0) {
+      PrometheusMeterRegistry prometheus = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+      registry.add(prometheus);
+      endpoint = new ScrapeEndpoint(prometheus, metricsPort);
+    }
+  }
+
+  /** Parse a {@code --statsd} value of the form {@code <host>:<port>}. */
+  static StatsdConfigKcr statsdConfig(String spec) {
+    int colon = spec.lastIndexOf(':');
+    int port;
+    try {
+      port = Integer.parseInt(spec.substring(colon + 1));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("--statsd must be <host>:<port>: " + spec, e);
+    }
+    if (colon <= 0 || port <= 0 || port > 65535) {
+      throw new IllegalArgumentException("--statsd must be <host>:<port>: " + spec);
+    }
+    return new StatsdConfigKcr(spec.substring(0, colon), port);
+  }
+
+  /**
+   * @return the port metrics are served on, or {@code 0} if they are not
+   */
+  public int getMetricsPort() {
+    return endpoint == null ? 0 : endpoint.getPort();
+  }
+
+  public String getStatsd() {
+    return statsd;
+  }
+}
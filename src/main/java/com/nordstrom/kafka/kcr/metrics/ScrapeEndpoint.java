@@ -0,0 +1,63 @@
+package com.nordstrom.kafka.kcr.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves a registry's meters in the Prometheus text format at {@code /metrics}, using the JDK's
+ * built-in HTTP server, so percentiles can be watched live during a run.
+ */
+public class ScrapeEndpoint implements AutoCloseable {
+  private static final Logger log = LoggerFactory.getLogger(ScrapeEndpoint.class);
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final HttpServer server;
+
+  /**
+   * @param port port to listen on, {@code 0} for any free port
+   */
+  public ScrapeEndpoint(PrometheusMeterRegistry registry, int port) {
+    try {
+      server = HttpServer.create(new InetSocketAddress(port), 0);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    server.createContext("/metrics", exchange -> scrape(registry, exchange));
+    server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    server.start();
+    log.trace(".init.ok:port={}", getPort());
+  }
+
+  private static void scrape(PrometheusMeterRegistry registry, HttpExchange exchange)
+      throws IOException {
+    try (exchange) {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    }
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -4,6 +4,18 @@ import io.micrometer.statsd.StatsdConfig;
 import io.micrometer.statsd.StatsdFlavor;
 
 public class StatsdConfigKcr implements StatsdConfig {
+  private final String host;
+  private final int port;
+
+  public StatsdConfigKcr() {
+    this("localhost", 8125);
+  }
+
+  public StatsdConfigKcr(String host, int port) {
+    this.host = host;
+    this.port = port;
+  }
+
   @Override
   public String get(String key) {
     return null;
@@ -13,4 +25,14 @@ public class StatsdConfigKcr implements StatsdConfig {
   public StatsdFlavor flavor() {
     return StatsdFlavor.ETSY;
   }
+
+  @Override
+  public String host() {
+    return host;
+  }
+
+  @Override
+  public int port() {
+    return port;
+  }
 }
@@ -0,0 +1,77 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nordstrom.kafka.kcr.io.FileSink;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CassetteArenaTests {
+
+  private File write(Path dir) {
+    return write(dir, "topic-0");
+  }
+
+  private File write(Path dir, String name) {
+    FileSink sink = new FileSink(dir.toString(), name);
+    CassetteFormat.JSON.writeHeader(sink);
+    CassetteRecordWriter writer = CassetteFormat.JSON.openWriter(sink);
+    for (int i = 0; i < 100; i++) {
+      writer.write(new CassetteRecord(new ArrayList<>(), 1_000L + i, 0, i, null, new byte[16]));
+    }
+    sink.close();
+    return new File(sink.getPath());
+  }
+
+  @Test
+  void replaysTheWindowAsOftenAsAsked(@TempDir Path tempDir) {
+    Map<String, List<File>> files = Map.of("topic-0", List.of(write(tempDir)));
+    CassetteArena arena = CassetteArena.load(files, 1_010L, 1_019L, 1024 * 1024);
+    assertNotNull(arena);
+    assertEquals(10L, arena.getRecords());
+
+    for (int run = 0; run < 2; run++) {
+      try (CassetteRecordReader reader = arena.open("topic-0")) {
+        for (int i = 10; i < 20; i++) {
+          CassetteRecord record = reader.next();
+          assertEquals(1_000L + i, record.getTimestamp());
+          assertEquals(i, record.getOffset());
+          assertEquals(16, record.getValueBytes().length);
+        }
+        assertNull(reader.next());
+      }
+    }
+  }
+
+  @Test
+  void cassettesOverTheCapAreNotLoaded(@TempDir Path tempDir) {
+    Map<String, List<File>> files = Map.of("topic-0", List.of(write(tempDir)));
+    assertNull(CassetteArena.load(files, Long.MIN_VALUE, Long.MAX_VALUE, 1024));
+  }
+
+  @Test
+  void manySmallPartitionsFitASmallCap(@TempDir Path tempDir) {
+    Map<String, List<File>> files = new HashMap<>();
+    for (int partition = 0; partition < 32; partition++) {
+      String name = "topic-" + partition;
+      files.put(name, List.of(write(tempDir, name)));
+    }
+    CassetteArena arena = CassetteArena.load(files, Long.MIN_VALUE, Long.MAX_VALUE, 1024 * 1024);
+    assertNotNull(arena);
+    assertEquals(3200L, arena.getRecords());
+    assertTrue(arena.getBytes() < 1024 * 1024);
+
+    try (CassetteRecordReader reader = arena.open("topic-31")) {
+      for (int i = 0; i < 100; i++) {
+        assertEquals(i, reader.next().getOffset());
+      }
+      assertNull(reader.next());
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nordstrom.kafka.kcr.io.FileSinkFactory;
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CassetteConverterTests {
+
+  @Test
+  void convertsFormatSegmentsAndFields(@TempDir Path tempDir) {
+    Cassette json =
+        new Cassette(
+            tempDir.resolve("in").toString(),
+            Map.of("orders", 2),
+            null,
+            new FileSinkFactory(),
+            CassetteFormat.JSON);
+    json.create("in");
+    for (int i = 0; i < 100; i++) {
+      List<Header> headers =
+          List.of(
+              new RecordHeader("trace", new byte[] {1}), new RecordHeader("id", new byte[] {2}));
+      json.getWriter("orders", i % 2)
+          .write(new CassetteRecord(headers, 1_000L * i, i % 2, i, "k".getBytes(), new byte[32]));
+    }
+    json.close();
+
+    CassetteConverter converter =
+        new CassetteConverter(
+            new File(json.getCassetteDir()),
+            new FileSinkFactory(),
+            CassetteFormat.COMPRESSED,
+            new SegmentPolicy(0L, Duration.ofSeconds(50)),
+            CassetteConverter.dropping(List.of("key", "header:trace")),
+            2);
+    Cassette converted = converter.convert(tempDir.resolve("out").toString(), "out");
+
+    assertEquals(100L, converter.getRecords());
+    CassetteInfo info = new CassetteInfo(converted.getCassetteDir());
+    assertEquals(100L, info.getTotalRecords());
+    String[] files = new File(converted.getCassetteDir()).list();
+    assertEquals(List.of("orders-1", "orders-1.1"), Cassette.segments(files).get("orders-1"));
+
+    File segment = new File(converted.getCassetteDir(), "orders-1");
+    assertEquals(CassetteFormat.COMPRESSED, CassetteFormat.detect(segment));
+    try (CassetteRecordReader reader = CassetteFormat.open(segment)) {
+      CassetteRecord record = reader.next();
+      assertEquals(1L, record.getOffset());
+      assertNull(record.getKeyBytes());
+      assertEquals(32, record.getValueBytes().length);
+      assertEquals(1, record.getRawHeaders().size());
+      assertEquals("id", record.getRawHeaders().get(0).key());
+    }
+
+    assertThrows(IllegalArgumentException.class, () -> CassetteConverter.dropping(List.of("ts")));
+  }
+}
@@ -0,0 +1,150 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nordstrom.kafka.kcr.facilities.AlphaNumKeyGenerator;
+import com.nordstrom.kafka.kcr.io.FileSink;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CassetteFormatTests {
+  private final AlphaNumKeyGenerator keyGen = new AlphaNumKeyGenerator();
+
+  private CassetteRecord record(long offset, byte[] key, byte[] value) {
+    List<Header> headers = new ArrayList<>();
+    headers.add(new RecordHeader("trace", "abc".getBytes(StandardCharsets.UTF_8)));
+    headers.add(new RecordHeader("empty", null));
+    return new CassetteRecord(headers, 1_000L + offset, 3, offset, key, value);
+  }
+
+  private File write(Path dir, CassetteFormat format, CassetteRecord... records) {
+    FileSink sink = new FileSink(dir.toString(), keyGen.key(8));
+    format.writeHeader(sink);
+    for (CassetteRecord record : records) {
+      sink.writeBytes(format.encode(record));
+    }
+    sink.close();
+    return new File(sink.getPath());
+  }
+
+  @Test
+  void jsonWriterMatchesMapperEncoding(@TempDir Path tempDir) throws IOException {
+    CassetteRecord[] records = {
+      record(0, "key".getBytes(StandardCharsets.UTF_8), new byte[] {0, 1, (byte) 0xab}),
+      record(1, null, null),
+      record(2, "k\"ey\n\u00e9".getBytes(StandardCharsets.UTF_8), new byte[0]),
+      record(3, new byte[] {(byte) 0xff, 'a'}, new byte[300])
+    };
+    File expected = write(tempDir, CassetteFormat.JSON, records);
+
+    FileSink sink = new FileSink(tempDir.toString(), keyGen.key(8));
+    CassetteRecordWriter writer = CassetteFormat.JSON.openWriter(sink);
+    long position = 0L;
+    for (CassetteRecord record : records) {
+      writer.write(record);
+      // Every record reaches the sink as it is written
+      assertEquals(position + CassetteFormat.JSON.encode(record).length, sink.position());
+      position = sink.position();
+    }
+    sink.close();
+
+    assertEquals(Files.readString(expected.toPath()), Files.readString(Path.of(sink.getPath())));
+  }
+
+  @Test
+  void binaryRoundTripKeepsRawBytes(@TempDir Path tempDir) {
+    byte[] binaryKey = {(byte) 0xff, 0, (byte) 0xfe, 7};
+    byte[] value = {1, 2, 3};
+    File file =
+        write(
+            tempDir,
+            CassetteFormat.BINARY,
+            record(0, binaryKey, value),
+            record(1, null, null),
+            record(2, new byte[0], new byte[0]));
+
+    assertEquals(CassetteFormat.BINARY, CassetteFormat.detect(file));
+    try (CassetteRecordReader reader = CassetteFormat.open(file)) {
+      CassetteRecord r0 = reader.next();
+      assertArrayEquals(binaryKey, r0.getKeyBytes());
+      assertArrayEquals(value, r0.getValueBytes());
+      assertEquals(1_000L, r0.getTimestamp());
+      assertEquals(3, r0.getPartition());
+      assertEquals(2, r0.getRawHeaders().size());
+      assertEquals("abc", r0.getHeaders().get("trace"));
+      assertNull(r0.getRawHeaders().get(1).value());
+
+      CassetteRecord r1 = reader.next();
+      assertNull(r1.getKeyBytes());
+      assertNull(r1.getValueBytes());
+      assertEquals(1L, r1.getOffset());
+
+      CassetteRecord r2 = reader.next();
+      assertEquals(0, r2.getKeyBytes().length);
+      assertEquals(0, r2.getValueBytes().length);
+
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  void jsonRoundTrip(@TempDir Path tempDir) {
+    byte[] key = "k1".getBytes(StandardCharsets.UTF_8);
+    byte[] value = {0x0a, 0x1b};
+    File file = write(tempDir, CassetteFormat.JSON, record(5, key, value));
+
+    assertEquals(CassetteFormat.JSON, CassetteFormat.detect(file));
+    try (CassetteRecordReader reader = CassetteFormat.open(file)) {
+      CassetteRecord r = reader.next();
+      assertEquals("k1", r.getKey());
+      assertEquals("0a1b", r.getValue());
+      assertArrayEquals(value, r.getValueBytes());
+      assertEquals(5L, r.getOffset());
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  void readsVersion2Cassettes(@TempDir Path tempDir) throws IOException {
+    File file = tempDir.resolve("topic-0").toFile();
+    Files.writeString(
+        file.toPath(),
+        "{\"headers\":{\"h\":\"v\"},\"timestamp\":1590000000000,\"partition\":0,"
+            + "\"offset\":42,\"key\":\"my-key\",\"value\":\"68656c6c6f\"}\n");
+
+    try (CassetteRecordReader reader = CassetteFormat.open(file)) {
+      CassetteRecord r = reader.next();
+      assertEquals("hello", new String(r.getValueBytes(), StandardCharsets.UTF_8));
+      assertEquals("my-key", new String(r.getKeyBytes(), StandardCharsets.UTF_8));
+      assertEquals("v", new String(r.getRawHeaders().get(0).value(), StandardCharsets.UTF_8));
+      assertEquals(42L, r.getOffset());
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  void truncatedBinaryRecordEndsTheFile(@TempDir Path tempDir) throws IOException {
+    File file = write(tempDir, CassetteFormat.BINARY, record(0, null, new byte[] {1}));
+    byte[] partial = CassetteFormat.BINARY.encode(record(1, null, new byte[] {2}));
+    Files.write(
+        file.toPath(),
+        Arrays.copyOf(partial, partial.length / 2),
+        StandardOpenOption.APPEND);
+
+    try (CassetteRecordReader reader = CassetteFormat.open(file)) {
+      assertNotNull(reader.next());
+      assertNull(reader.next());
+    }
+  }
+}
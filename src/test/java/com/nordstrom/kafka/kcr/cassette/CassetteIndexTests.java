@@ -0,0 +1,84 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nordstrom.kafka.kcr.io.FileSink;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CassetteIndexTests {
+
+  private File record(Path dir, CassetteFormat format, int count, long intervalBytes) {
+    FileSink sink = new FileSink(dir.toString(), "topic-0");
+    CassetteIndexWriter index =
+        new CassetteIndexWriter(
+            new FileSink(dir.toString(), CassetteIndex.fileName("topic-0")), intervalBytes);
+    format.writeHeader(sink);
+    for (int i = 0; i < count; i++) {
+      CassetteRecord record =
+          new CassetteRecord(new ArrayList<>(), 1_000L * i, 0, 100L + i, null, new byte[64]);
+      byte[] data = format.encode(record);
+      index.append(record.getTimestamp(), record.getOffset(), sink.position());
+      sink.writeBytes(data);
+    }
+    sink.close();
+    index.close();
+    return new File(sink.getPath());
+  }
+
+  @Test
+  void cassettesWithoutAnIndexLoadAsNull(@TempDir Path tempDir) {
+    assertNull(CassetteIndex.load(tempDir.resolve("topic-0").toFile()));
+  }
+
+  @Test
+  void indexIsSparse(@TempDir Path tempDir) {
+    File file = record(tempDir, CassetteFormat.BINARY, 1000, 4096);
+    CassetteIndex index = CassetteIndex.load(file);
+    assertNotNull(index);
+    assertTrue(index.size() > 1);
+    assertTrue(index.size() < 100);
+  }
+
+  @Test
+  void seekByTimestampSkipsEarlierRecords(@TempDir Path tempDir) {
+    // Compressed files are indexed by block, see CompressedRecordTests
+    for (CassetteFormat format : List.of(CassetteFormat.JSON, CassetteFormat.BINARY)) {
+      Path dir = tempDir.resolve(format.name());
+      File file = record(dir, format, 1000, 4096);
+      CassetteIndex index = CassetteIndex.load(file);
+
+      long from = 700_000L;
+      long position = index.positionForTimestamp(from);
+      assertTrue(position > 0);
+      try (CassetteRecordReader reader = CassetteFormat.open(file, position)) {
+        CassetteRecord first = reader.next();
+        assertTrue(first.getTimestamp() <= from);
+        assertTrue(first.getTimestamp() > from - 100_000L);
+        assertEquals(100L + first.getTimestamp() / 1_000L, first.getOffset());
+      }
+    }
+  }
+
+  @Test
+  void seekByOffset(@TempDir Path tempDir) {
+    File file = record(tempDir, CassetteFormat.BINARY, 1000, 4096);
+    CassetteIndex index = CassetteIndex.load(file);
+
+    try (CassetteRecordReader reader =
+        CassetteFormat.open(file, index.positionForOffset(600L))) {
+      CassetteRecord first = reader.next();
+      assertTrue(first.getOffset() <= 600L);
+      assertTrue(first.getOffset() > 500L);
+    }
+    assertEquals(0L, index.positionForOffset(10L));
+    try (CassetteRecordReader reader =
+        CassetteFormat.open(file, index.positionForTimestamp(0L))) {
+      assertEquals(100L, reader.next().getOffset());
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nordstrom.kafka.kcr.io.FileSinkFactory;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CassetteMergerTests {
+
+  private static File record(Path dir, CassetteFormat format, int fromOffset, int toOffset) {
+    Cassette cassette =
+        new Cassette(dir.toString(), Map.of("orders", 2), null, new FileSinkFactory(), format);
+    cassette.create("test");
+    for (int offset = fromOffset; offset < toOffset; offset++) {
+      for (int partition = 0; partition < 2; partition++) {
+        cassette
+            .getWriter("orders", partition)
+            .write(
+                new CassetteRecord(
+                    List.of(), 1_000L * offset, partition, offset, null, new byte[] {1}));
+      }
+    }
+    cassette.close();
+    return new File(cassette.getCassetteDir());
+  }
+
+  @Test
+  void mergesInTimestampOrderWithoutDuplicates(@TempDir Path tempDir) {
+    // Two overlapping sessions, offsets 0-59 and 40-99
+    File first = record(tempDir.resolve("a"), CassetteFormat.JSON, 0, 60);
+    File second = record(tempDir.resolve("b"), CassetteFormat.BINARY, 40, 100);
+
+    CassetteMerger merger =
+        new CassetteMerger(List.of(first, second), new FileSinkFactory(), CassetteFormat.BINARY, 2);
+    Cassette merged = merger.merge(tempDir.resolve("out").toString(), "merged");
+
+    assertEquals(200L, merger.getRecords());
+    assertEquals(40L, merger.getDuplicates());
+    assertEquals(200L, new CassetteInfo(merged.getCassetteDir()).getTotalRecords());
+
+    List<Long> offsets = new ArrayList<>();
+    try (CassetteRecordReader reader =
+        CassetteFormat.open(new File(merged.getCassetteDir(), "orders-1"))) {
+      CassetteRecord record;
+      while ((record = reader.next()) != null) {
+        assertEquals(1_000L * record.getOffset(), record.getTimestamp());
+        offsets.add(record.getOffset());
+      }
+    }
+    assertEquals(100, offsets.size());
+    for (int i = 0; i < offsets.size(); i++) {
+      assertEquals(i, offsets.get(i).longValue());
+    }
+  }
+
+  @Test
+  void mergesByOffsetWhenTimestampsAreNotAscending(@TempDir Path tempDir) {
+    // Create times out of order: (t5, o1), (t3, o2), recorded twice
+    List<File> sources = new ArrayList<>();
+    for (String name : List.of("a", "b")) {
+      Cassette cassette =
+          new Cassette(
+              tempDir.resolve(name).toString(),
+              Map.of("orders", 1),
+              null,
+              new FileSinkFactory(),
+              CassetteFormat.BINARY);
+      cassette.create("test");
+      cassette.getWriter("orders", 0).write(new CassetteRecord(List.of(), 5L, 0, 1L, null, null));
+      cassette.getWriter("orders", 0).write(new CassetteRecord(List.of(), 3L, 0, 2L, null, null));
+      cassette.close();
+      sources.add(new File(cassette.getCassetteDir()));
+    }
+
+    CassetteMerger merger =
+        new CassetteMerger(sources, new FileSinkFactory(), CassetteFormat.BINARY, 1);
+    Cassette merged = merger.merge(tempDir.resolve("out").toString(), "merged");
+
+    assertEquals(2L, merger.getRecords());
+    assertEquals(2L, merger.getDuplicates());
+    try (CassetteRecordReader reader =
+        CassetteFormat.open(new File(merged.getCassetteDir(), "orders-0"))) {
+      CassetteRecord first = reader.next();
+      assertEquals(1L, first.getOffset());
+      assertEquals(5L, first.getTimestamp());
+      CassetteRecord second = reader.next();
+      assertEquals(2L, second.getOffset());
+      assertEquals(3L, second.getTimestamp());
+      assertNull(reader.next());
+    }
+  }
+}
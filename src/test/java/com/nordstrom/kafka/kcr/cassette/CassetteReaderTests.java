@@ -0,0 +1,89 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nordstrom.kafka.kcr.io.FileSinkFactory;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CassetteReaderTests {
+  private static final int RECORDS = 3000;
+
+  /** Two partitions of 1KiB random values, several index entries each. */
+  private static File record(Path dir, CassetteFormat format) {
+    Cassette cassette =
+        new Cassette(dir.toString(), Map.of("orders", 2), null, new FileSinkFactory(), format);
+    cassette.create("test");
+    Random random = new Random(11);
+    for (int offset = 0; offset < RECORDS; offset++) {
+      for (int partition = 0; partition < 2; partition++) {
+        byte[] value = new byte[1024];
+        random.nextBytes(value);
+        cassette
+            .getWriter("orders", partition)
+            .write(
+                new CassetteRecord(
+                    new ArrayList<>(), 10L * offset + partition, partition, offset, null, value));
+      }
+    }
+    cassette.close();
+    return new File(cassette.getCassetteDir());
+  }
+
+  @Test
+  void streamsEveryRecordOnceInParallel(@TempDir Path tempDir) {
+    for (CassetteFormat format : CassetteFormat.values()) {
+      File dir = record(tempDir.resolve(format.name()), format);
+      try (CassetteReader reader = new CassetteReader(dir)) {
+        Spliterator<CassetteRecord> spliterator = reader.spliterator();
+        assertNotNull(spliterator.trySplit());
+
+        List<Long> records =
+            reader.stream()
+                .parallel()
+                .map(r -> (long) r.getPartition() * RECORDS + r.getOffset())
+                .toList();
+        assertEquals(2 * RECORDS, records.size());
+        assertEquals(2 * RECORDS, new HashSet<>(records).size());
+        // Ordered: partition by partition, each in offset order
+        for (int i = 0; i < records.size(); i++) {
+          assertEquals(i, records.get(i).longValue());
+        }
+      }
+    }
+  }
+
+  @Test
+  void iteratesPartitionsAndTheMergeWithinTheWindow(@TempDir Path tempDir) {
+    File dir = record(tempDir, CassetteFormat.BINARY);
+    try (CassetteReader reader = new CassetteReader(dir, 10_000L, 19_999L)) {
+      assertEquals(List.of("orders-0", "orders-1"), reader.getPartitionFiles());
+
+      Iterator<CassetteRecord> partition = reader.iterator("orders-1");
+      for (long offset = 1000; offset < 2000; offset++) {
+        CassetteRecord record = partition.next();
+        assertEquals(offset, record.getOffset());
+        assertEquals(1, record.getPartition());
+      }
+      assertFalse(partition.hasNext());
+
+      List<CassetteRecord> merged = new ArrayList<>();
+      reader.iterator().forEachRemaining(merged::add);
+      assertEquals(2000, merged.size());
+      for (int i = 0; i < merged.size(); i++) {
+        assertEquals(10L * (1000 + i / 2) + i % 2, merged.get(i).getTimestamp());
+      }
+
+      assertEquals(2000L, reader.stream().parallel().count());
+    }
+  }
+}
@@ -6,7 +6,14 @@ import com.nordstrom.kafka.kcr.facilities.AlphaNumKeyGenerator;
 import com.nordstrom.kafka.kcr.io.FileSinkFactory;
 import com.nordstrom.kafka.kcr.io.NullSinkFactory;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -71,4 +78,160 @@ class CassetteTests {
     assertTrue(new File(cassette.getCassetteDir()).isDirectory());
     assertEquals(2, cassette.getSinks().size());
   }
+
+  private Cassette recordCassette(Path tempDir, CassetteFormat format) {
+    Cassette cassette =
+        new Cassette(tempDir.toString(), keyGen.key(8), 3, null, new FileSinkFactory(), format);
+    cassette.create(keyGen.key(8));
+    for (int i = 0; i < 30; i++) {
+      PartitionWriter writer = cassette.getWriters().get(i % 3);
+      writer.write(
+          new CassetteRecord(new ArrayList<>(), 10_000L + i, i % 3, i / 3, null, new byte[8]));
+    }
+    cassette.close();
+    return cassette;
+  }
+
+  @Test
+  void partitionsAreSpreadEvenlyOverConsumers() {
+    assertEquals(
+        List.of(List.of(0, 3, 6), List.of(1, 4), List.of(2, 5)),
+        Cassette.assignPartitions(List.of(0, 1, 2, 3, 4, 5, 6), 3));
+    // Never more consumers than partitions
+    assertEquals(List.of(List.of(0), List.of(1)), Cassette.assignPartitions(List.of(0, 1), 8));
+  }
+
+  @Test
+  void cassetteHoldsEveryTopicUnderOneManifest(@TempDir Path tempDir) {
+    Map<String, Integer> topics = new LinkedHashMap<>();
+    topics.put("orders", 2);
+    topics.put("order-events", 1);
+    Cassette cassette =
+        new Cassette(
+            tempDir.toString(), topics, null, new FileSinkFactory(), CassetteFormat.BINARY);
+    cassette.create(keyGen.key(8));
+    assertTrue(cassette.getCassetteName().startsWith("kcr-orders+1-"));
+    PartitionWriter writer = cassette.getWriter("order-events", 0);
+    writer.write(new CassetteRecord(new ArrayList<>(), 10_000L, 0, 7L, null, new byte[8]));
+    cassette.close();
+
+    CassetteManifest manifest = CassetteManifest.read(new File(cassette.getCassetteDir()));
+    assertNotNull(manifest);
+    assertEquals(topics, manifest.getTopics());
+    assertEquals(3, manifest.getPartitions());
+    PartitionStats stats = manifest.getPartitionStats().get(2);
+    assertEquals("order-events-0", stats.getFile());
+    assertEquals("order-events", stats.getTopic());
+    assertEquals(1L, stats.getCount());
+    assertEquals("order-events", Cassette.topicOf(stats.getFile()));
+    assertEquals(0, Cassette.partitionOf(stats.getFile()));
+  }
+
+  @Test
+  void manifestIsReplacedWholeWithoutLeavingTemporaryFiles(@TempDir Path tempDir)
+      throws IOException {
+    Cassette cassette =
+        new Cassette(tempDir.toString(), keyGen.key(8), 2, null, new FileSinkFactory());
+    cassette.create(keyGen.key(8));
+
+    // Readable, but incomplete, while recording
+    CassetteManifest open = CassetteManifest.read(new File(cassette.getCassetteDir()));
+    assertNotNull(open);
+    assertFalse(open.isComplete());
+
+    cassette.close();
+    try (var files = Files.list(Path.of(cassette.getCassetteDir()))) {
+      List<String> names = files.map(f -> f.getFileName().toString()).toList();
+      assertEquals(1L, names.stream().filter(n -> n.endsWith(CassetteManifest.SUFFIX)).count());
+      assertTrue(names.stream().noneMatch(n -> n.endsWith(".tmp")), names.toString());
+    }
+    assertTrue(CassetteManifest.read(new File(cassette.getCassetteDir())).isComplete());
+  }
+
+  @Test
+  void closedCassetteManifestHoldsPartitionStats(@TempDir Path tempDir) {
+    Cassette cassette = recordCassette(tempDir, CassetteFormat.BINARY);
+
+    CassetteManifest manifest = CassetteManifest.read(new File(cassette.getCassetteDir()));
+    assertNotNull(manifest);
+    assertTrue(manifest.isComplete());
+    assertEquals(CassetteVersion.V3, manifest.getVersion());
+    assertEquals(3, manifest.getPartitionStats().size());
+
+    PartitionStats stats = manifest.getPartitionStats().get(1);
+    assertEquals(10L, stats.getCount());
+    assertEquals(10_001L, stats.getEarliestTimestamp());
+    assertEquals(10_028L, stats.getLatestTimestamp());
+    assertEquals(0L, stats.getFirstOffset());
+    assertEquals(9L, stats.getLastOffset());
+
+    CassetteInfo info = new CassetteInfo(cassette.getCassetteDir());
+    assertEquals(30L, info.getTotalRecords());
+    assertEquals(10_000L, info.getEarliest().toEpochMilli());
+    assertEquals(10_029L, info.getLatest().toEpochMilli());
+  }
+
+  @Test
+  void cassetteInfoScansCassettesWithoutStats(@TempDir Path tempDir) throws IOException {
+    for (CassetteFormat format : CassetteFormat.values()) {
+      Cassette cassette = recordCassette(tempDir.resolve(format.name()), format);
+      File dir = new File(cassette.getCassetteDir());
+      for (File manifest : dir.listFiles((d, n) -> n.endsWith(CassetteManifest.SUFFIX))) {
+        Files.writeString(manifest.toPath(), "---\nversion:2.0\n");
+      }
+
+      CassetteInfo info = new CassetteInfo(cassette.getCassetteDir());
+      assertEquals(3, info.getPartitions().size());
+      assertEquals(30L, info.getTotalRecords());
+      assertEquals(10_000L, info.getEarliest().toEpochMilli());
+      assertEquals(10_029L, info.getLatest().toEpochMilli());
+    }
+  }
+
+  @Test
+  void segmentPolicyWithoutLimitsIsNone() {
+    assertSame(SegmentPolicy.NONE, SegmentPolicy.of(0L, Duration.ZERO));
+    assertTrue(SegmentPolicy.NONE.isNone());
+    assertFalse(SegmentPolicy.of(1024L, Duration.ZERO).isNone());
+    assertFalse(SegmentPolicy.of(0L, Duration.ofMinutes(5)).isNone());
+  }
+
+  @Test
+  void partitionsRollOverIntoSegmentsThatReadAsOne(@TempDir Path tempDir) {
+    Cassette cassette =
+        new Cassette(
+            tempDir.toString(),
+            Map.of("orders", 1),
+            null,
+            new FileSinkFactory(),
+            CassetteFormat.BINARY,
+            new SegmentPolicy(0L, Duration.ofMillis(10)));
+    cassette.create(keyGen.key(8));
+    PartitionWriter writer = cassette.getWriter("orders", 0);
+    for (int i = 0; i < 25; i++) {
+      writer.write(new CassetteRecord(new ArrayList<>(), 10_000L + i, 0, i, null, new byte[8]));
+    }
+    cassette.close();
+
+    String[] files = new File(cassette.getCassetteDir()).list();
+    List<String> segments = Cassette.segments(files).get("orders-0");
+    assertEquals(List.of("orders-0", "orders-0.1", "orders-0.2"), segments);
+
+    CassetteManifest manifest = CassetteManifest.read(new File(cassette.getCassetteDir()));
+    List<SegmentStats> stats = manifest.getPartitionStats().get(0).getSegments();
+    assertEquals(3, stats.size());
+    assertEquals(10_010L, stats.get(1).getEarliestTimestamp());
+    assertEquals(10_019L, stats.get(1).getLatestTimestamp());
+    assertEquals(5L, stats.get(2).getCount());
+    assertEquals(25L, new CassetteInfo(cassette.getCassetteDir()).getTotalRecords());
+
+    List<File> segmentFiles =
+        segments.stream().map(f -> new File(cassette.getCassetteDir(), f)).toList();
+    try (SegmentedRecordReader reader = new SegmentedRecordReader(segmentFiles)) {
+      for (int i = 0; i < 25; i++) {
+        assertEquals(10_000L + i, reader.next().getTimestamp());
+      }
+      assertNull(reader.next());
+    }
+  }
 }
@@ -0,0 +1,57 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nordstrom.kafka.kcr.io.FileSink;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CompressedRecordTests {
+
+  @Test
+  void blocksReadBackAndSeekThroughTheIndex(@TempDir Path tempDir) {
+    FileSink sink = new FileSink(tempDir.toString(), "topic-0");
+    CassetteIndexWriter index =
+        new CassetteIndexWriter(
+            new FileSink(tempDir.toString(), CassetteIndex.fileName("topic-0")), 4096);
+    CompressedRecordWriter.writeHeader(sink, BlockCodecs.DEFLATE);
+    CassetteRecordWriter writer = new CompressedRecordWriter(sink, BlockCodecs.DEFLATE, 8192);
+    Random random = new Random(7);
+    for (int i = 0; i < 1000; i++) {
+      // Half random, half zeros: compressible, but not to nothing
+      byte[] value = new byte[128];
+      random.nextBytes(value);
+      Arrays.fill(value, 64, 128, (byte) 0);
+      index.append(1_000L * i, i, sink.position());
+      writer.write(new CassetteRecord(new ArrayList<>(), 1_000L * i, 0, i, null, value));
+    }
+    writer.flush();
+    sink.close();
+    index.close();
+    File file = new File(sink.getPath());
+
+    assertEquals(CassetteFormat.COMPRESSED, CassetteFormat.detect(file));
+    assertTrue(file.length() < 1000 * 128);
+    try (CassetteRecordReader reader = CassetteFormat.open(file)) {
+      for (int i = 0; i < 1000; i++) {
+        CassetteRecord record = reader.next();
+        assertEquals(i, record.getOffset());
+        assertEquals(128, record.getValueBytes().length);
+      }
+      assertNull(reader.next());
+    }
+
+    long position = CassetteIndex.load(file).positionForTimestamp(700_000L);
+    assertTrue(position > CompressedRecordWriter.HEADER_SIZE);
+    try (CassetteRecordReader reader = CassetteFormat.open(file, position)) {
+      CassetteRecord first = reader.next();
+      assertTrue(first.getTimestamp() <= 700_000L);
+      assertTrue(first.getTimestamp() > 600_000L);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nordstrom.kafka.kcr.io.FileSink;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedRecordReaderTests {
+
+  private File write(Path dir, List<CassetteRecord> records) {
+    FileSink sink = new FileSink(dir.toString(), "topic-0");
+    CassetteFormat.BINARY.writeHeader(sink);
+    for (CassetteRecord record : records) {
+      sink.writeBytes(CassetteFormat.BINARY.encode(record));
+    }
+    sink.close();
+    return new File(sink.getPath());
+  }
+
+  @Test
+  void readsAcrossWindowBoundaries(@TempDir Path tempDir) {
+    Random random = new Random(42);
+    List<CassetteRecord> records = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      byte[] value = new byte[random.nextInt(300)];
+      random.nextBytes(value);
+      List<Header> headers = new ArrayList<>();
+      headers.add(new RecordHeader("id", String.valueOf(i).getBytes(StandardCharsets.UTF_8)));
+      records.add(new CassetteRecord(headers, i, 0, i, null, value));
+    }
+    File file = write(tempDir, records);
+
+    // A window smaller than many of the records forces remapping mid-file
+    try (MappedRecordReader reader = new MappedRecordReader(file, 0L, 128)) {
+      for (CassetteRecord expected : records) {
+        CassetteRecord actual = reader.next();
+        assertNotNull(actual);
+        assertEquals(expected.getOffset(), actual.getOffset());
+        assertArrayEquals(expected.getValueBytes(), actual.getValueBytes());
+        assertEquals(expected.getHeaders(), actual.getHeaders());
+      }
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  void recordIsReusedBetweenCalls(@TempDir Path tempDir) {
+    List<CassetteRecord> records = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      records.add(new CassetteRecord(new ArrayList<>(), i, 0, i, new byte[] {1}, new byte[] {2}));
+    }
+    File file = write(tempDir, records);
+
+    try (CassetteRecordReader reader = CassetteFormat.open(file)) {
+      CassetteRecord first = reader.next();
+      assertEquals(0L, first.getOffset());
+      assertSame(first, reader.next());
+      assertEquals(1L, first.getOffset());
+    }
+  }
+}
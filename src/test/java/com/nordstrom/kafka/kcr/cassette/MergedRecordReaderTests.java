@@ -0,0 +1,59 @@
+package com.nordstrom.kafka.kcr.cassette;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MergedRecordReaderTests {
+
+  /** Reader over fixed timestamps that, like the mapped reader, reuses its record. */
+  private static class ListReader implements CassetteRecordReader {
+    private final Iterator<Long> timestamps;
+    private final int partition;
+    private final CassetteRecord record = new CassetteRecord();
+    private boolean closed;
+
+    ListReader(int partition, Long... timestamps) {
+      this.partition = partition;
+      this.timestamps = List.of(timestamps).iterator();
+    }
+
+    @Override
+    public CassetteRecord next() {
+      if (!timestamps.hasNext()) {
+        return null;
+      }
+      record.setPartition(partition);
+      record.setTimestamp(timestamps.next());
+      return record;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  @Test
+  void mergesByTimestamp() {
+    ListReader p0 = new ListReader(0, 1L, 4L, 4L, 9L);
+    ListReader p1 = new ListReader(1);
+    ListReader p2 = new ListReader(2, 2L, 3L, 4L, 10L);
+
+    List<String> merged = new ArrayList<>();
+    try (MergedRecordReader reader = new MergedRecordReader(List.of(p0, p1, p2))) {
+      CassetteRecord record;
+      while ((record = reader.next()) != null) {
+        assertEquals(record.getPartition(), reader.source());
+        merged.add(record.getTimestamp() + "@" + record.getPartition());
+      }
+    }
+
+    // Ties are broken by reader order
+    assertEquals(List.of("1@0", "2@2", "3@2", "4@0", "4@0", "4@2", "9@0", "10@2"), merged);
+    assertTrue(p0.closed && p1.closed && p2.closed);
+  }
+}
@@ -0,0 +1,67 @@
+package com.nordstrom.kafka.kcr.facilities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class PacingSchedulerTests {
+
+  @Test
+  void deadlinesFollowTheCassetteTimeline() {
+    PacingScheduler scheduler = new PacingScheduler(1_000L, 2.0, 0L);
+    long start = scheduler.deadlineNanos(1_000L);
+
+    // At twice the capture rate, a record 10ms into the cassette is due 5ms into the run
+    assertEquals(5_000_000L, scheduler.deadlineNanos(1_010L) - start);
+  }
+
+  @Test
+  void waitsUntilTheDeadline() throws InterruptedException {
+    PacingScheduler scheduler = new PacingScheduler(0L, 1.0, PacingScheduler.DEFAULT_SPIN_NANOS);
+
+    long lag = scheduler.await(20L);
+    long now = System.nanoTime();
+
+    assertTrue(now >= scheduler.deadlineNanos(20L));
+    assertTrue(lag >= 0);
+  }
+
+  @Test
+  void lateRecordsReportTheirLag() throws InterruptedException {
+    PacingScheduler scheduler = new PacingScheduler(0L, 1.0, 0L);
+    Thread.sleep(20L);
+
+    assertTrue(scheduler.await(0L) >= 20_000_000L);
+  }
+
+  @Test
+  void zeroRateDoesNotWait() throws InterruptedException {
+    PacingScheduler scheduler = new PacingScheduler(0L, 0.0, 0L);
+
+    assertEquals(0L, scheduler.await(Long.MAX_VALUE));
+  }
+
+  @Test
+  void laterRunsPickUpTheProfileWhereTheSessionIs() {
+    RateProfile profile = RateProfile.parse("1x:10ms,2x");
+
+    // A first run plays its first 10ms of cassette at the capture rate
+    PacingScheduler first = new PacingScheduler(1_000L, profile, 0L);
+    assertEquals(10_000_000L, first.deadlineNanos(1_010L) - first.deadlineNanos(1_000L), 1_000L);
+
+    // A run starting 20ms into the session is already in the 2x stage, from its own origin
+    PacingScheduler later = new PacingScheduler(1_000L, profile, 0L, 20_000_000L);
+    long start = later.deadlineNanos(1_000L);
+    assertEquals(5_000_000L, later.deadlineNanos(1_010L) - start, 1_000L);
+    assertEquals(2.0, later.currentRate(), 0.0);
+  }
+
+  @Test
+  void tokenBucketSpacesTokensAtTheRate() {
+    TokenBucket bucket = new TokenBucket(RateProfile.parse("1000/s"), 1, 0L);
+
+    long first = bucket.reserve();
+    long second = bucket.reserve();
+    assertEquals(1_000_000L, second - first, 1_000L);
+  }
+}
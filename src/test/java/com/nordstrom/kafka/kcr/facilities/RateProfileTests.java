@@ -0,0 +1,52 @@
+package com.nordstrom.kafka.kcr.facilities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class RateProfileTests {
+  private static final long SECOND = 1_000_000_000L;
+
+  @Test
+  void rampsLinearlyThenHolds() {
+    RateProfile profile = RateProfile.parse("1x-10x:30m");
+
+    assertFalse(profile.isAbsolute());
+    assertEquals(1.0, profile.rateAt(0L), 1e-9);
+    assertEquals(5.5, profile.rateAt(900 * SECOND), 1e-9);
+    assertEquals(10.0, profile.rateAt(3600 * SECOND), 1e-9);
+    // Area under the ramp: 30 minutes at an average of 5.5x
+    assertEquals(1800 * 5.5, profile.progressAt(1800 * SECOND), 1e-6);
+  }
+
+  @Test
+  void elapsedForInvertsProgress() {
+    RateProfile profile = RateProfile.parse("100/s:10s, 200/s-50/s:20s, 400/s");
+
+    assertTrue(profile.isAbsolute());
+    for (long elapsed : new long[] {0L, 3 * SECOND, 10 * SECOND, 17 * SECOND, 45 * SECOND}) {
+      double progress = profile.progressAt(elapsed);
+      assertEquals(elapsed, profile.elapsedFor(progress), 1_000L);
+    }
+  }
+
+  @Test
+  void stepsChangeRateAtStageBoundaries() {
+    RateProfile profile = RateProfile.parse("1x:1m,2x:1m,4x");
+
+    assertEquals(1.0, profile.rateAt(59 * SECOND), 1e-9);
+    assertEquals(2.0, profile.rateAt(60 * SECOND), 1e-9);
+    assertEquals(4.0, profile.rateAt(3600 * SECOND), 1e-9);
+    assertEquals(60 * SECOND + 30 * SECOND, profile.elapsedFor(120.0), 1_000L);
+  }
+
+  @Test
+  void rejectsInvalidProfiles() {
+    assertThrows(IllegalArgumentException.class, () -> RateProfile.parse("2"));
+    assertThrows(IllegalArgumentException.class, () -> RateProfile.parse("1x,2x:1m"));
+    assertThrows(IllegalArgumentException.class, () -> RateProfile.parse("1x:1m,100/s"));
+    assertThrows(IllegalArgumentException.class, () -> RateProfile.parse("1x-5x"));
+    assertThrows(IllegalArgumentException.class, () -> RateProfile.parse("5x-0x:1m"));
+  }
+
+}
@@ -5,7 +5,9 @@ import static org.junit.jupiter.api.Assertions.*;
 import com.nordstrom.kafka.kcr.facilities.AlphaNumKeyGenerator;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -65,4 +67,66 @@ class FileSinkTests {
     assertTrue(f.isFile());
     assertTrue(f.getAbsolutePath().endsWith("/" + d1 + "/" + d2 + "/" + d3 + "/" + filename));
   }
+
+  @Test
+  void writesAreBufferedUntilFlushed(@TempDir Path tempDir) throws IOException {
+    String filename = keyGen.key(8);
+    FileSink sink =
+        new FileSink(
+            tempDir.toString(), filename, new FlushPolicy(1024, Duration.ofHours(1), false));
+    sink.writeText("hello\n");
+    File f = new File(sink.getPath());
+    assertEquals(0, f.length());
+
+    sink.flush();
+    assertEquals("hello\n", Files.readString(f.toPath()));
+  }
+
+  @Test
+  void writesAreFlushedWhenBufferFills(@TempDir Path tempDir) throws IOException {
+    String filename = keyGen.key(8);
+    FileSink sink =
+        new FileSink(tempDir.toString(), filename, new FlushPolicy(8, Duration.ofHours(1), false));
+    sink.writeBytes(new byte[] {1, 2, 3, 4, 5});
+    sink.writeBytes(new byte[] {6, 7, 8});
+    sink.writeBytes(new byte[] {9});
+    assertEquals(8, new File(sink.getPath()).length());
+
+    // Records larger than the buffer go straight through
+    sink.writeBytes(new byte[32]);
+    assertEquals(41, new File(sink.getPath()).length());
+    sink.close();
+  }
+
+  @Test
+  void closeFlushesAndRejectsFurtherWrites(@TempDir Path tempDir) throws IOException {
+    String filename = keyGen.key(8);
+    FileSink sink = new FileSink(tempDir.toString(), filename);
+    for (int i = 0; i < 100; i++) {
+      sink.writeText(i + "\n");
+    }
+    sink.close();
+    sink.close();
+
+    assertEquals(100, Files.readAllLines(Path.of(sink.getPath())).size());
+    assertThrows(RuntimeException.class, () -> sink.writeText("too late\n"));
+  }
+
+  @Test
+  void closeFailsWhenAnInterruptLostBufferedData(@TempDir Path tempDir) {
+    String filename = keyGen.key(8);
+    FileSink sink =
+        new FileSink(
+            tempDir.toString(), filename, new FlushPolicy(1024, Duration.ofHours(1), false));
+    sink.writeText("buffered\n");
+
+    // An interrupted write closes the channel
+    Thread.currentThread().interrupt();
+    try {
+      assertThrows(RuntimeException.class, sink::flush);
+    } finally {
+      Thread.interrupted();
+    }
+    assertThrows(RuntimeException.class, sink::close);
+  }
 }
@@ -2,6 +2,7 @@ package com.nordstrom.kafka.kcr.io;
 
 public class NullSink implements Sink {
   private String path = "";
+  private long position = 0;
 
   @Override
   public String getPath() {
@@ -20,6 +21,26 @@ public class NullSink implements Sink {
 
   @Override
   public void writeBytes(byte[] bytes) {
+    position += bytes.length;
+  }
+
+  @Override
+  public void writeBytes(byte[] bytes, int offset, int length) {
+    position += length;
+  }
+
+  @Override
+  public long position() {
+    return position;
+  }
+
+  @Override
+  public void flush() {
+    // No-op
+  }
+
+  @Override
+  public void close() {
     // No-op
   }
 }
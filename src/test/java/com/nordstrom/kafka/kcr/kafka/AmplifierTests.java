@@ -0,0 +1,35 @@
+package com.nordstrom.kafka.kcr.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class AmplifierTests {
+
+  @Test
+  void copiesAreSpreadOverTheGapBeforeTheRecord() {
+    Amplifier amplifier = new Amplifier(4);
+    amplifier.next(1_000L);
+    for (int copy = 0; copy < 4; copy++) {
+      assertEquals(1_000L, amplifier.timestamp(copy));
+    }
+
+    amplifier.next(1_100L);
+    assertEquals(1_025L, amplifier.timestamp(0));
+    assertEquals(1_050L, amplifier.timestamp(1));
+    assertEquals(1_075L, amplifier.timestamp(2));
+    assertEquals(1_100L, amplifier.timestamp(3));
+  }
+
+  @Test
+  void allButTheLastCopyGetSaltedKeys() {
+    Amplifier amplifier = new Amplifier(3);
+    byte[] key = "customer-1".getBytes(StandardCharsets.UTF_8);
+
+    assertEquals("customer-1#2", new String(amplifier.key(key, 0), StandardCharsets.UTF_8));
+    assertEquals("customer-1#1", new String(amplifier.key(key, 1), StandardCharsets.UTF_8));
+    assertSame(key, amplifier.key(key, 2));
+    assertNull(amplifier.key(null, 0));
+  }
+}
@@ -0,0 +1,96 @@
+package com.nordstrom.kafka.kcr.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.junit.jupiter.api.Test;
+
+class InFlightWindowTests {
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+  private final MockProducer<byte[], byte[]> producer =
+      new MockProducer<>(false, new ByteArraySerializer(), new ByteArraySerializer());
+
+  private static ProducerRecord<byte[], byte[]> record(int size) {
+    return new ProducerRecord<>("orders", 0, new byte[2], new byte[size]);
+  }
+
+  /** Start {@code task} and check that it is still blocked a little later. */
+  private static Thread blocked(ThrowingRunnable task) throws InterruptedException {
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                task.run();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    thread.start();
+    thread.join(100L);
+    assertTrue(thread.isAlive());
+    return thread;
+  }
+
+  private interface ThrowingRunnable {
+    void run() throws InterruptedException;
+  }
+
+  @Test
+  void sendBlocksWhileTheWindowIsFull() throws InterruptedException {
+    InFlightWindow window = new InFlightWindow(producer, 2, "0", registry);
+    window.send(record(8));
+    window.send(record(8));
+    assertEquals(2, window.inFlight());
+
+    Thread third = blocked(() -> window.send(record(8)));
+    assertEquals(2, producer.history().size());
+
+    assertTrue(producer.completeNext());
+    third.join(5_000L);
+    assertFalse(third.isAlive());
+    assertEquals(3, producer.history().size());
+    assertEquals(2, window.inFlight());
+  }
+
+  @Test
+  void drainWaitsForEverySendToComplete() throws InterruptedException {
+    InFlightWindow window = new InFlightWindow(producer, 4, "0", registry);
+    window.send(record(8));
+    window.send(record(8));
+
+    Thread drain = blocked(window::drain);
+    assertTrue(producer.completeNext());
+    drain.join(100L);
+    assertTrue(drain.isAlive());
+
+    assertTrue(producer.errorNext(new RuntimeException("broker unavailable")));
+    drain.join(5_000L);
+    assertFalse(drain.isAlive());
+    assertEquals(0, window.inFlight());
+  }
+
+  @Test
+  void countersAreCompleteOnceDrained() throws InterruptedException {
+    InFlightWindow window = new InFlightWindow(producer, 4, "0", registry);
+    window.send(record(8));
+    window.send(record(8));
+    window.send(record(30));
+
+    Thread drain = blocked(window::drain);
+    assertTrue(producer.completeNext());
+    assertTrue(producer.completeNext());
+    assertTrue(producer.errorNext(new RuntimeException("record too large")));
+    drain.join(5_000L);
+    assertFalse(drain.isAlive());
+
+    assertEquals(2.0, registry.counter("send.total", "partition", "0").count());
+    assertEquals(2.0, registry.counter("send.total").count());
+    assertEquals(20.0, registry.counter("send.bytes", "partition", "0").count());
+    assertEquals(1.0, registry.counter("send.error.total", "partition", "0").count());
+    assertEquals(1.0, registry.counter("send.error.total").count());
+  }
+}
@@ -0,0 +1,66 @@
+package com.nordstrom.kafka.kcr.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+class OffsetBoundTests {
+  private final Instant now = Instant.parse("2024-05-17T17:00:00Z");
+
+  @Test
+  void timesParseToKeywordsOrInstants() {
+    assertEquals(new OffsetBound.Earliest(), OffsetBound.parseTime("earliest", now));
+    assertEquals(new OffsetBound.End(), OffsetBound.parseTime("end", now));
+    assertEquals(
+        new OffsetBound.AtTime(Instant.parse("2024-05-17T16:00:00Z")),
+        OffsetBound.parseTime("-1h", now));
+    assertThrows(IllegalArgumentException.class, () -> OffsetBound.parseTime("yesterday", now));
+  }
+
+  @Test
+  void offsetsParseForEveryOrEachPartition() {
+    assertEquals(new OffsetBound.AtOffsets(1000L, Map.of()), OffsetBound.parseOffsets("1000"));
+    assertEquals(
+        new OffsetBound.AtOffsets(null, Map.of("0", 10L, "orders-1", 20L)),
+        OffsetBound.parseOffsets("0=10, orders-1=20"));
+    assertThrows(IllegalArgumentException.class, () -> OffsetBound.parseOffsets("0:10"));
+  }
+
+  @Test
+  void stopTimeNoRecordHasReachedStaysOpenUntilItPasses() {
+    TopicPartition reached = new TopicPartition("orders", 0);
+    TopicPartition quiet = new TopicPartition("orders", 1);
+    List<TopicPartition> partitions = List.of(reached, quiet);
+    MockConsumer<byte[], byte[]> consumer =
+        new MockConsumer<>(OffsetResetStrategy.EARLIEST) {
+          @Override
+          public synchronized Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(
+              Map<TopicPartition, Long> timestamps) {
+            // Only partition 0 has a record that late
+            Map<TopicPartition, OffsetAndTimestamp> found = new HashMap<>();
+            found.put(reached, new OffsetAndTimestamp(7L, timestamps.get(reached)));
+            found.put(quiet, null);
+            return found;
+          }
+        };
+    consumer.updateEndOffsets(Map.of(reached, 10L, quiet, 20L));
+
+    OffsetBound future = new OffsetBound.AtTime(Instant.now().plus(Duration.ofHours(1)));
+    assertEquals(
+        Map.of(reached, 7L, quiet, OffsetBound.OPEN), future.resolve(consumer, partitions, false));
+    // Recording from a time still to come starts with the next record
+    assertEquals(Map.of(reached, 7L, quiet, 20L), future.resolve(consumer, partitions, true));
+
+    OffsetBound past = new OffsetBound.AtTime(Instant.now().minus(Duration.ofHours(1)));
+    assertEquals(Map.of(reached, 7L, quiet, 20L), past.resolve(consumer, partitions, false));
+  }
+}
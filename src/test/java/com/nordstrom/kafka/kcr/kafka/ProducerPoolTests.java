@@ -0,0 +1,35 @@
+package com.nordstrom.kafka.kcr.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.junit.jupiter.api.Test;
+
+class ProducerPoolTests {
+
+  @Test
+  void partitionsAreSpreadOverEveryProducer() {
+    List<Producer<byte[], byte[]>> producers =
+        List.of(new MockProducer<>(), new MockProducer<>(), new MockProducer<>());
+    ProducerPool pool = new ProducerPool(producers, new SimpleMeterRegistry());
+
+    Set<Producer<byte[], byte[]>> used = new HashSet<>();
+    for (int partition = 0; partition < 3; partition++) {
+      used.add(pool.forPartition("orders", partition));
+    }
+    assertEquals(3, used.size());
+    assertSame(pool.forPartition("orders", 1), pool.forPartition("orders", 4));
+  }
+
+  @Test
+  void poolMustHaveAProducer() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new ProducerPool(List.of(), new SimpleMeterRegistry()));
+  }
+}
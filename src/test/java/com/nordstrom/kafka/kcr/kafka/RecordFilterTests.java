@@ -0,0 +1,57 @@
+package com.nordstrom.kafka.kcr.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+
+class RecordFilterTests {
+
+  private ConsumerRecord<byte[], byte[]> record(String key, String tenant, int valueSize) {
+    ConsumerRecord<byte[], byte[]> record =
+        new ConsumerRecord<>(
+            "orders",
+            0,
+            0L,
+            key == null ? null : key.getBytes(StandardCharsets.UTF_8),
+            new byte[valueSize]);
+    if (tenant != null) {
+      record.headers().add("tenant", tenant.getBytes(StandardCharsets.UTF_8));
+    }
+    return record;
+  }
+
+  @Test
+  void firstRuleThatFailsDropsTheRecord() {
+    RecordFilter filter =
+        new RecordFilter(
+            List.of(
+                RecordFilter.parse("header:tenant=acme"),
+                RecordFilter.parse("key=customer-\\d+"),
+                RecordFilter.parse("max-value-bytes=100")));
+
+    assertNull(filter.drops(record("customer-1", "acme", 100)));
+    assertEquals("header:tenant=acme", filter.drops(record("customer-1", "other", 10)).name());
+    assertEquals("header:tenant=acme", filter.drops(record("customer-1", null, 10)).name());
+    assertEquals("key=customer-\\d+", filter.drops(record(null, "acme", 10)).name());
+    assertEquals("max-value-bytes=100", filter.drops(record("customer-1", "acme", 101)).name());
+
+    assertThrows(IllegalArgumentException.class, () -> RecordFilter.parse("size=10"));
+    assertThrows(IllegalArgumentException.class, () -> RecordFilter.parse("key=("));
+  }
+
+  @Test
+  void sampleKeepsEveryRecordOfAboutOneKeyInN() {
+    RecordFilter.Rule sample = RecordFilter.sampleKeys(100);
+    int kept = 0;
+    for (int i = 0; i < 100_000; i++) {
+      ConsumerRecord<byte[], byte[]> record = record("customer-" + i, null, 0);
+      boolean keep = sample.keep().test(record);
+      assertEquals(keep, sample.keep().test(record("customer-" + i, "acme", 10)));
+      kept += keep ? 1 : 0;
+    }
+    assertTrue(kept > 800 && kept < 1200, "kept " + kept);
+  }
+}
@@ -0,0 +1,38 @@
+package com.nordstrom.kafka.kcr.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.nordstrom.kafka.kcr.kafka.Repartitioner.Strategy;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class RepartitionerTests {
+
+  @Test
+  void keyHashSpreadsFewRecordedPartitionsOverEveryTarget() {
+    Repartitioner repartitioner = new Repartitioner(Strategy.KEY_HASH, 48, 0);
+    PartitionSkew skew = new PartitionSkew("orders", 48);
+    for (int i = 0; i < 48_000; i++) {
+      byte[] key = ("customer-" + i).getBytes(StandardCharsets.UTF_8);
+      skew.increment(repartitioner.partition(i % 12, key));
+    }
+    for (int p = 0; p < 48; p++) {
+      assertTrue(skew.get(p) > 0, "partition " + p + " is idle");
+    }
+    assertTrue(skew.ratio() < 1.2, skew.summary());
+
+    byte[] key = "customer-7".getBytes(StandardCharsets.UTF_8);
+    assertEquals(repartitioner.partition(0, key), repartitioner.partition(11, key));
+    assertEquals(5, repartitioner.partition(5, null));
+  }
+
+  @Test
+  void moduloAndRoundRobin() {
+    assertEquals(2, new Repartitioner(Strategy.MODULO, 4, 0).partition(10, null));
+
+    Repartitioner roundRobin = new Repartitioner(Strategy.ROUND_ROBIN, 3, 2);
+    assertEquals(2, roundRobin.partition(0, null));
+    assertEquals(0, roundRobin.partition(0, null));
+    assertEquals(1, roundRobin.partition(0, null));
+  }
+}
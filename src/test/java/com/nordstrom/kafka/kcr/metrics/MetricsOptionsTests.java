@@ -0,0 +1,31 @@
+package com.nordstrom.kafka.kcr.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class MetricsOptionsTests {
+
+  @Test
+  void statsdParsesHostAndPort() {
+    StatsdConfigKcr config = MetricsOptions.statsdConfig("statsd.example.com:8125");
+    assertEquals("statsd.example.com", config.host());
+    assertEquals(8125, config.port());
+
+    // The port follows the last colon, so IPv6 hosts keep theirs
+    StatsdConfigKcr ipv6 = MetricsOptions.statsdConfig("[::1]:9125");
+    assertEquals("[::1]", ipv6.host());
+    assertEquals(9125, ipv6.port());
+  }
+
+  @Test
+  void malformedStatsdIsRejected() {
+    for (String spec : new String[] {"localhost", "localhost:", ":8125", "localhost:statsd"}) {
+      IllegalArgumentException e =
+          assertThrows(IllegalArgumentException.class, () -> MetricsOptions.statsdConfig(spec));
+      assertTrue(e.getMessage().contains("<host>:<port>"), e.getMessage());
+    }
+    assertThrows(IllegalArgumentException.class, () -> MetricsOptions.statsdConfig("host:0"));
+    assertThrows(IllegalArgumentException.class, () -> MetricsOptions.statsdConfig("host:65536"));
+  }
+}
@@ -0,0 +1,52 @@
+package com.nordstrom.kafka.kcr.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import org.junit.jupiter.api.Test;
+
+class ScrapeEndpointTests {
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  private HttpResponse<String> request(ScrapeEndpoint endpoint, String method)
+      throws IOException, InterruptedException {
+    HttpRequest request =
+        HttpRequest.newBuilder(URI.create("http://localhost:" + endpoint.getPort() + "/metrics"))
+            .method(method, HttpRequest.BodyPublishers.noBody())
+            .build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  @Test
+  void getServesPrometheusText() throws IOException, InterruptedException {
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    registry.counter("kcr.test").increment();
+
+    try (ScrapeEndpoint endpoint = new ScrapeEndpoint(registry, 0)) {
+      assertTrue(endpoint.getPort() > 0);
+
+      HttpResponse<String> response = request(endpoint, "GET");
+      assertEquals(200, response.statusCode());
+      assertTrue(
+          response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+      assertTrue(response.body().contains("# TYPE kcr_test_total counter"), response.body());
+      assertTrue(response.body().contains("kcr_test_total 1.0"), response.body());
+    }
+  }
+
+  @Test
+  void otherMethodsAreNotAllowed() throws IOException, InterruptedException {
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+    try (ScrapeEndpoint endpoint = new ScrapeEndpoint(registry, 0)) {
+      assertEquals(405, request(endpoint, "POST").statusCode());
+      assertEquals(405, request(endpoint, "DELETE").statusCode());
+    }
+  }
+}